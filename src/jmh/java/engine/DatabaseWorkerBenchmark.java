@@ -0,0 +1,84 @@
+package engine;
+
+import engine.dto.BenchConf;
+import engine.dto.BenchConf.Protocol;
+import engine.dto.BenchConf.QueryMode;
+import engine.strategy.DatabaseStrategy;
+import engine.utils.ErrorCounter;
+import engine.utils.LatencyRecorder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static engine.dto.BenchConf.DbEngine.NOOP;
+
+// one iteration of the client loop of a real worker on the noop engine: deadline check, key draws, the transaction
+// through the statement handling of the strategy, latency recording; the score is the ceiling in transactions per second per client
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseWorkerBenchmark {
+
+    @Param({"statements", "procedure", "pipeline"})
+    private String protocol;
+
+    @Param({"prepared", "unprepared"})
+    private String queryMode;
+
+    @Param({"false", "true"})
+    private boolean reportPerCommand;
+
+    private DatabaseWorker worker;
+
+    @Setup
+    public void setup() throws SQLException {
+        BenchConf conf = new BenchConf();
+        conf.setEngine(NOOP);
+        conf.setScale(100);
+        conf.setProtocol(Protocol.valueOf(protocol.toUpperCase()));
+        conf.setQueryMode(QueryMode.valueOf(queryMode.toUpperCase()));
+        conf.setReportPerCommand(reportPerCommand);
+        DatabaseStrategy str = BenchEngine.newStrategy(conf);
+        WorkerRecorders rec = new WorkerRecorders(new LatencyRecorder(), new LatencyRecorder(), new LatencyRecorder(), new LatencyRecorder(),
+                new LatencyRecorder(), new LatencyRecorder[0], reportPerCommand ? newRecorders(str.getCommandNames().size()) : null, new ErrorCounter());
+        // no deadline and no schedule, the loop runs for as long as the benchmark calls it
+        worker = new DatabaseWorker(conf, str, new AtomicLong(Long.MAX_VALUE), null, new CountDownLatch(0), new CountDownLatch(0), null, rec);
+        worker.connect();
+    }
+
+    @TearDown
+    public void tearDown() {
+        worker.closeSession();
+    }
+
+    @Benchmark
+    public boolean transaction() throws SQLException, InterruptedException {
+        return worker.runNext();
+    }
+
+    private static LatencyRecorder[] newRecorders(int size) {
+        LatencyRecorder[] ret = new LatencyRecorder[size];
+        for (int i = 0; i < size; i++) {
+            ret[i] = new LatencyRecorder();
+        }
+        return ret;
+    }
+
+}
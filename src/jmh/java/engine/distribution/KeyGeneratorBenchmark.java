@@ -0,0 +1,41 @@
+package engine.distribution;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// one draw of an account id at scale 100, the generator is shared by all threads since generators hold no mutable state
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyGeneratorBenchmark {
+
+    @Param({"uniform", "zipfian:0.99", "gaussian:2.5", "exponential:5", "hotspot:20:80"})
+    private String distribution;
+
+    private KeyGenerator generator;
+
+    @Setup
+    public void setup() {
+        generator = KeyDistribution.parse(distribution).newGenerator(1, 100 * 100000L);
+    }
+
+    @Benchmark
+    public long next() {
+        return generator.next();
+    }
+
+}
@@ -0,0 +1,41 @@
+package engine.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// formatting of elapsed times, cycling through every unit it can pick
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommonUtilsBenchmark {
+
+    private static final long[] ELAPSED = {
+            512L,
+            TimeUnit.MICROSECONDS.toNanos(42),
+            TimeUnit.MILLISECONDS.toNanos(3),
+            TimeUnit.SECONDS.toNanos(17),
+            TimeUnit.MINUTES.toNanos(5),
+            TimeUnit.HOURS.toNanos(2)
+    };
+
+    private int idx;
+
+    @Benchmark
+    public String smartElapsed() {
+        idx = idx == ELAPSED.length - 1 ? 0 : idx + 1;
+        return CommonUtils.smartElapsed(ELAPSED[idx]);
+    }
+
+}
@@ -0,0 +1,91 @@
+package engine.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// recording a latency, the cost every transaction pays: on a recorder of its own as each client has, and while a collector
+// drains it as fast as it can, which is the worst case of the phase flip a progress interval costs writers
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LatencyRecorderBenchmark {
+
+    // lognormal latencies around one millisecond, drawn once so that the random generator stays out of the measurement
+    private static final long[] SAMPLES = new long[4096];
+
+    static {
+        Random rnd = new Random(42);
+        for (int i = 0; i < SAMPLES.length; i++) {
+            SAMPLES[i] = (long) (1_000_000d * Math.exp(0.5d * rnd.nextGaussian()));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+
+        LatencyRecorder recorder;
+        int idx;
+
+        @Setup
+        public void setup() {
+            recorder = new LatencyRecorder();
+        }
+
+        long nextSample() {
+            idx = (idx + 1) & (SAMPLES.length - 1);
+            return SAMPLES[idx];
+        }
+
+    }
+
+    @State(Scope.Group)
+    public static class SharedState {
+
+        LatencyRecorder recorder;
+        LatencyHistogram target;
+
+        @Setup
+        public void setup() {
+            recorder = new LatencyRecorder();
+            target = new LatencyHistogram();
+        }
+
+    }
+
+    @Benchmark
+    public void record(ClientState client) {
+        client.recorder.record(client.nextSample());
+    }
+
+    @Benchmark
+    @Group("collected")
+    @GroupThreads(1)
+    public void recordWhileCollected(SharedState shared, ClientState client) {
+        shared.recorder.record(client.nextSample());
+    }
+
+    @Benchmark
+    @Group("collected")
+    @GroupThreads(1)
+    public void collect(SharedState shared, Blackhole bh) {
+        shared.recorder.drainInto(shared.target);
+        bh.consume(shared.target.getCount());
+    }
+
+}
@@ -0,0 +1,87 @@
+package engine.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// what a progress interval costs: collecting the recorders of all clients, then computing and formatting the figures
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricProviderBenchmark {
+
+    private static final List<Double> PERCENTILES = List.of(50d, 90d, 99d, 99.9d);
+
+    private LatencyHistogram histogram;
+
+    @State(Scope.Thread)
+    public static class Clients {
+
+        @Param({"1", "64", "1024"})
+        private int clients;
+
+        private LatencyAggregator aggregator;
+        private final LatencyHistogram interval = new LatencyHistogram();
+
+        @Setup
+        public void setup() {
+            aggregator = new LatencyAggregator(clients);
+        }
+
+        // a hundred samples per client since the previous interval, recorded outside of the measurement
+        @Setup(Level.Invocation)
+        public void record() {
+            for (int i = 0; i < clients; i++) {
+                LatencyRecorder recorder = aggregator.getRecorder(i);
+                for (int j = 0; j < 100; j++) {
+                    recorder.record(1_000_000L + j * 1000L);
+                }
+            }
+        }
+
+    }
+
+    // a million lognormal latencies around one millisecond, as a run of a few minutes gathers
+    @Setup
+    public void setup() {
+        histogram = new LatencyHistogram();
+        Random rnd = new Random(42);
+        for (int i = 0; i < 1_000_000; i++) {
+            histogram.record((long) (1_000_000d * Math.exp(0.5d * rnd.nextGaussian())));
+        }
+    }
+
+    @Benchmark
+    public long takeInterval(Clients state) {
+        state.aggregator.takeInterval(state.interval);
+        return state.interval.getCount();
+    }
+
+    @Benchmark
+    public MetricProvider metricProvider() {
+        return new MetricProvider(histogram, PERCENTILES);
+    }
+
+    @Benchmark
+    public String formatProgress() {
+        MetricProvider mp = new MetricProvider(histogram, PERCENTILES);
+        return CommonUtils.formatPercentiles(mp) + CommonUtils.formatDistribution(mp);
+    }
+
+}
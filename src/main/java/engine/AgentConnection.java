@@ -0,0 +1,207 @@
+package engine;
+
+import engine.dto.BenchConf;
+import engine.dto.BenchResult;
+import engine.utils.LatencyHistogram;
+import engine.utils.LatencyRecorder;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static engine.dto.BenchResult.ExecStatus.KO;
+import static engine.dto.BenchResult.ExecStatus.OK;
+
+// coordinator side of an agent: the configuration is sent once, then for each concurrency level the agent is given its share of clients,
+// connects them, starts on the coordinator's barrier and streams back what its clients recorded until they are all done
+@Log4j2
+public class AgentConnection implements AutoCloseable {
+
+    // messages, coordinator to agent
+    static final byte LEVEL = 1;
+    static final byte START = 2;
+    static final byte BYE = 3;
+    // messages, agent to coordinator
+    static final byte INTERVAL = 4;
+    static final byte CONNECTED = 5;
+    static final byte DONE = 6;
+    static final byte WARMED_UP = 7;
+    // recorders histograms are streamed from
+    static final byte LATENCY = 0;
+    static final byte LAG = 1;
+    static final byte CONNECT = 2;
+    static final byte RETRIED = 3;
+    static final byte POOL_WAIT = 4;
+    static final byte SCRIPT = 5;
+    static final byte COMMAND = 6;
+
+    private final Socket socket;
+    private final ObjectOutputStream out;
+    private final ObjectInputStream in;
+    private final LatencyHistogram scratch = new LatencyHistogram();
+    // counted down once per level, when the agent is warmed up or as soon as it is done or lost
+    private CountDownLatch warmedUp;
+
+    private AgentConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        // both ends write the stream header before reading the other one, or they would wait for each other
+        this.out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.flush();
+        this.in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    public static List<AgentConnection> acceptAll(BenchConf conf) throws IOException {
+        log.info("Waiting for {} agents on port {}...", conf.getAgents(), conf.getAgentPort());
+        List<AgentConnection> ret = new ArrayList<>(conf.getAgents());
+        try (ServerSocket server = new ServerSocket(conf.getAgentPort())) {
+            while (ret.size() < conf.getAgents()) {
+                AgentConnection agent = new AgentConnection(server.accept());
+                ret.add(agent);
+                agent.out.writeObject(conf);
+                agent.out.flush();
+                log.info("Agent {} connected from {}", ret.size(), agent.socket.getRemoteSocketAddress());
+            }
+        } catch (IOException ex) {
+            ret.forEach(AgentConnection::close);
+            throw ex;
+        }
+        return ret;
+    }
+
+    // drives the given clients of a concurrency level on the agent, feeding their recorders as a local client would,
+    // results are completed when the agent is done, or lost
+    public Callable<BenchResult> level(List<WorkerRecorders> recs, List<CompletableFuture<BenchResult>> results, double rate,
+                                       AtomicLong deadline, CountDownLatch connected, CountDownLatch start, CountDownLatch warmedUp) {
+        return () -> {
+            this.warmedUp = warmedUp;
+            BenchResult ret = new BenchResult();
+            ret.setStatus(OK);
+            int counted = 0;
+            try {
+                out.writeByte(LEVEL);
+                out.writeInt(recs.size());
+                out.writeDouble(rate);
+                out.flush();
+                readUntil(CONNECTED, recs);
+                for (; counted < recs.size(); counted++) {
+                    connected.countDown();
+                }
+                start.await();
+                // time left rather than the deadline itself, so that clocks of agents need not be in sync
+                out.writeByte(START);
+                out.writeLong(deadline.get() - System.currentTimeMillis());
+                out.flush();
+                readUntil(DONE, recs);
+                for (CompletableFuture<BenchResult> result : results) {
+                    BenchResult res = new BenchResult();
+                    res.setStatus(in.readBoolean() ? OK : KO);
+                    String error = in.readUTF();
+                    if (!error.isEmpty()) {
+                        res.setEx(new Exception(error));
+                    }
+                    result.complete(res);
+                }
+            } catch (IOException ex) {
+                ret.setStatus(KO);
+                ret.setEx(new IOException("Agent " + socket.getRemoteSocketAddress() + " lost: " + ex.getMessage(), ex));
+            } finally {
+                signalWarmedUp();
+                // clients of a lost agent count as connected and failed, completing results already delivered has no effect
+                for (; counted < recs.size(); counted++) {
+                    connected.countDown();
+                }
+                for (CompletableFuture<BenchResult> result : results) {
+                    BenchResult res = new BenchResult();
+                    res.setStatus(KO);
+                    res.setEx(ret.getEx());
+                    result.complete(res);
+                }
+            }
+            return ret;
+        };
+    }
+
+    private void readUntil(byte expected, List<WorkerRecorders> recs) throws IOException {
+        while (true) {
+            byte type = in.readByte();
+            if (type == expected) {
+                return;
+            }
+            if (type == WARMED_UP) {
+                signalWarmedUp();
+                continue;
+            }
+            if (type != INTERVAL) {
+                throw new IOException("Unexpected message " + type);
+            }
+            readInterval(recs);
+        }
+    }
+
+    private void signalWarmedUp() {
+        if (warmedUp != null) {
+            warmedUp.countDown();
+            warmedUp = null;
+        }
+    }
+
+    // non empty histograms until a negative client index, then counters of every client and errors by type
+    private void readInterval(List<WorkerRecorders> recs) throws IOException {
+        int client;
+        while ((client = in.readInt()) >= 0) {
+            byte kind = in.readByte();
+            int idx = in.readInt();
+            scratch.reset();
+            scratch.read(in);
+            getRecorder(recs.get(client), kind, idx).record(scratch);
+        }
+        for (WorkerRecorders rec : recs) {
+            rec.getLatency().recordCounts(in.readLong(), in.readLong(), in.readLong());
+        }
+        int errors = in.readInt();
+        for (int i = 0; i < errors; i++) {
+            recs.get(0).getErrors().record(in.readUTF(), in.readLong());
+        }
+    }
+
+    private static LatencyRecorder getRecorder(WorkerRecorders rec, byte kind, int idx) throws IOException {
+        return switch (kind) {
+            case LATENCY -> rec.getLatency();
+            case LAG -> rec.getLag();
+            case CONNECT -> rec.getConnect();
+            case RETRIED -> rec.getRetried();
+            case POOL_WAIT -> rec.getPoolWait();
+            case SCRIPT -> rec.getScripts()[idx];
+            case COMMAND -> rec.getCommands()[idx];
+            default -> throw new IOException("Unknown recorder " + kind);
+        };
+    }
+
+    @Override
+    public void close() {
+        try {
+            out.writeByte(BYE);
+            out.flush();
+        } catch (IOException ex) {
+            // agent already gone
+        }
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            // nothing to do
+        }
+    }
+
+}
@@ -0,0 +1,282 @@
+package engine;
+
+import engine.dto.BenchConf;
+import engine.dto.BenchResult;
+import engine.strategy.DatabaseStrategy;
+import engine.utils.ErrorCounter;
+import engine.utils.LatencyHistogram;
+import engine.utils.LatencyRecorder;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static engine.AgentConnection.BYE;
+import static engine.AgentConnection.COMMAND;
+import static engine.AgentConnection.CONNECT;
+import static engine.AgentConnection.CONNECTED;
+import static engine.AgentConnection.DONE;
+import static engine.AgentConnection.INTERVAL;
+import static engine.AgentConnection.LAG;
+import static engine.AgentConnection.LATENCY;
+import static engine.AgentConnection.LEVEL;
+import static engine.AgentConnection.POOL_WAIT;
+import static engine.AgentConnection.RETRIED;
+import static engine.AgentConnection.SCRIPT;
+import static engine.AgentConnection.START;
+import static engine.AgentConnection.WARMED_UP;
+import static engine.dto.BenchConf.Output.NONE;
+import static engine.dto.BenchConf.ThreadModel.VIRTUAL;
+import static engine.dto.BenchResult.ExecStatus.OK;
+
+// runs clients on behalf of a coordinator, streaming back whatever they record; the workload comes from the coordinator,
+// database address and credentials from the agent's own command line
+@Log4j2
+public class BenchAgent {
+
+    // well below the progress interval, so that agent samples land in the interval they belong to
+    private static final long STREAM_INTERVAL_MILLIS = 200;
+    // nothing but the configuration is ever deserialized
+    private static final ObjectInputFilter CONF_FILTER = ObjectInputFilter.Config.createFilter("engine.**;java.util.**;java.lang.**;!*");
+
+    private final BenchConf local;
+    private final String coordinator;
+
+    public BenchAgent(BenchConf local, String coordinator) {
+        this.local = local;
+        this.coordinator = coordinator;
+    }
+
+    public void run() throws IOException, ClassNotFoundException, InterruptedException {
+        int colon = coordinator.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Coordinator must be given as host:port");
+        }
+        try (Socket socket = new Socket(coordinator.substring(0, colon), Integer.parseInt(coordinator.substring(colon + 1)))) {
+            socket.setTcpNoDelay(true);
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            in.setObjectInputFilter(CONF_FILTER);
+            BenchConf conf = (BenchConf) in.readObject();
+            if (conf.getEngine() != local.getEngine()) {
+                throw new IllegalArgumentException("Coordinator runs " + conf.getEngine() + ", agent was started for " + local.getEngine());
+            }
+            conf.setHost(local.getHost());
+            conf.setPort(local.getPort());
+            conf.setDbname(local.getDbname());
+            conf.setUsername(local.getUsername());
+            conf.setPassword(local.getPassword());
+            // reporting is up to the coordinator
+            conf.setOutput(NONE);
+            conf.setProgress(0);
+            DatabaseStrategy str = BenchEngine.newStrategy(conf);
+            log.info("Connected to coordinator {}", coordinator);
+            while (true) {
+                byte type = in.readByte();
+                if (type == BYE) {
+                    break;
+                }
+                if (type != LEVEL) {
+                    throw new IOException("Unexpected message " + type);
+                }
+                int clients = in.readInt();
+                double rate = in.readDouble();
+                runLevel(conf, str, clients, rate, in, out);
+            }
+            log.info("Coordinator done, exiting");
+        }
+    }
+
+    private void runLevel(BenchConf conf, DatabaseStrategy str, int clients, double rate, ObjectInputStream in, ObjectOutputStream out)
+            throws IOException, InterruptedException {
+        log.info("Starting {} concurrent {} threads...", clients, conf.getThreadModel().toString().toLowerCase());
+        ExecutorService tPool = conf.getThreadModel() == VIRTUAL ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newFixedThreadPool(Math.max(clients, 1));
+        TransactionSchedule schedule = rate > 0 ? new TransactionSchedule(rate, TimeUnit.SECONDS.toNanos(conf.getWarmup() + conf.getTime())) : null;
+        AtomicLong deadline = new AtomicLong();
+        CountDownLatch connected = new CountDownLatch(clients);
+        CountDownLatch start = new CountDownLatch(1);
+        int commands = conf.isReportPerCommand() ? str.getCommandNames().size() : 0;
+        ErrorCounter errors = new ErrorCounter();
+        List<WorkerRecorders> recs = new ArrayList<>(clients);
+        List<Future<BenchResult>> tRes = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            WorkerRecorders rec = new WorkerRecorders(new LatencyRecorder(), new LatencyRecorder(), new LatencyRecorder(), new LatencyRecorder(),
+                    new LatencyRecorder(), newRecorders(conf.getScripts().size()), conf.isReportPerCommand() ? newRecorders(commands) : null, errors);
+            recs.add(rec);
+            tRes.add(tPool.submit(new DatabaseWorker(conf, str, deadline, schedule, connected, start, null, rec)));
+        }
+        Stream stream = new Stream(recs, out);
+        connected.await();
+        stream.send();
+        out.writeByte(CONNECTED);
+        out.flush();
+        if (in.readByte() != START) {
+            throw new IOException("Unexpected message, start expected");
+        }
+        long remaining = in.readLong();
+        deadline.set(System.currentTimeMillis() + remaining);
+        if (schedule != null) {
+            schedule.start(System.nanoTime());
+        }
+        start.countDown();
+        tPool.shutdown();
+        // warm-up is timed from the start message, so that the coordinator, timing it from its own start, ends it first
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(conf.getWarmup());
+        boolean warmedUp = conf.getWarmup() == 0;
+        while (!tPool.awaitTermination(warmedUp ? STREAM_INTERVAL_MILLIS
+                : Math.max(1, Math.min(STREAM_INTERVAL_MILLIS, TimeUnit.NANOSECONDS.toMillis(warmupEnd - System.nanoTime()))), TimeUnit.MILLISECONDS)) {
+            if (!warmedUp && System.nanoTime() >= warmupEnd) {
+                stream.dropWarmup();
+                warmedUp = true;
+            } else {
+                stream.send();
+            }
+        }
+        if (!warmedUp) {
+            stream.dropWarmup();
+        }
+        stream.send();
+        out.writeByte(DONE);
+        for (Future<BenchResult> f : tRes) {
+            String error;
+            boolean ok;
+            try {
+                BenchResult res = f.get();
+                ok = res.getStatus() == OK;
+                error = res.getEx() != null ? String.valueOf(res.getEx().getMessage()) : "";
+            } catch (ExecutionException ex) {
+                ok = false;
+                error = String.valueOf(ex.getCause().getMessage());
+            }
+            out.writeBoolean(ok);
+            out.writeUTF(error);
+        }
+        out.flush();
+        log.info("{} clients done", clients);
+    }
+
+    private static LatencyRecorder[] newRecorders(int size) {
+        LatencyRecorder[] ret = new LatencyRecorder[size];
+        for (int i = 0; i < size; i++) {
+            ret[i] = new LatencyRecorder();
+        }
+        return ret;
+    }
+
+    // sends what clients recorded since the previous call, counters and errors as differences from what was already sent
+    private static class Stream {
+
+        private final List<WorkerRecorders> recs;
+        private final ObjectOutputStream out;
+        private final LatencyHistogram scratch = new LatencyHistogram();
+        private final long[][] sentCounts;
+        private final Map<String, Long> sentErrors = new HashMap<>();
+
+        Stream(List<WorkerRecorders> recs, ObjectOutputStream out) {
+            this.recs = recs;
+            this.out = out;
+            this.sentCounts = new long[recs.size()][3];
+        }
+
+        void send() throws IOException {
+            out.writeByte(INTERVAL);
+            for (int i = 0; i < recs.size(); i++) {
+                WorkerRecorders rec = recs.get(i);
+                sendHistogram(i, LATENCY, 0, rec.getLatency());
+                sendHistogram(i, LAG, 0, rec.getLag());
+                sendHistogram(i, CONNECT, 0, rec.getConnect());
+                sendHistogram(i, RETRIED, 0, rec.getRetried());
+                sendHistogram(i, POOL_WAIT, 0, rec.getPoolWait());
+                for (int j = 0; j < rec.getScripts().length; j++) {
+                    sendHistogram(i, SCRIPT, j, rec.getScripts()[j]);
+                }
+                if (rec.getCommands() != null) {
+                    for (int j = 0; j < rec.getCommands().length; j++) {
+                        sendHistogram(i, COMMAND, j, rec.getCommands()[j]);
+                    }
+                }
+            }
+            out.writeInt(-1);
+            for (int i = 0; i < recs.size(); i++) {
+                LatencyRecorder latency = recs.get(i).getLatency();
+                long[] counts = {latency.getErrors(), latency.getSkipped(), latency.getRetries()};
+                for (int j = 0; j < counts.length; j++) {
+                    out.writeLong(counts[j] - sentCounts[i][j]);
+                    sentCounts[i][j] = counts[j];
+                }
+            }
+            Map<String, Long> errors = recs.isEmpty() ? Map.of() : recs.get(0).getErrors().getCounts();
+            errors.entrySet().removeIf(e -> e.getValue().equals(sentErrors.getOrDefault(e.getKey(), 0L)));
+            out.writeInt(errors.size());
+            for (Map.Entry<String, Long> e : errors.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue() - sentErrors.getOrDefault(e.getKey(), 0L));
+                sentErrors.put(e.getKey(), e.getValue());
+            }
+            out.flush();
+        }
+
+        // discards whatever was recorded and not sent yet, counters included, then tells the coordinator that warm-up is over:
+        // everything it received before belongs to warm-up, everything after to the measurement
+        void dropWarmup() throws IOException {
+            for (int i = 0; i < recs.size(); i++) {
+                WorkerRecorders rec = recs.get(i);
+                drain(rec.getLatency());
+                drain(rec.getLag());
+                drain(rec.getConnect());
+                drain(rec.getRetried());
+                drain(rec.getPoolWait());
+                for (LatencyRecorder script : rec.getScripts()) {
+                    drain(script);
+                }
+                if (rec.getCommands() != null) {
+                    for (LatencyRecorder command : rec.getCommands()) {
+                        drain(command);
+                    }
+                }
+                LatencyRecorder latency = rec.getLatency();
+                sentCounts[i] = new long[]{latency.getErrors(), latency.getSkipped(), latency.getRetries()};
+            }
+            if (!recs.isEmpty()) {
+                sentErrors.putAll(recs.get(0).getErrors().getCounts());
+            }
+            out.writeByte(WARMED_UP);
+            out.flush();
+        }
+
+        private void drain(LatencyRecorder recorder) {
+            scratch.reset();
+            recorder.drainInto(scratch);
+        }
+
+        private void sendHistogram(int client, byte kind, int idx, LatencyRecorder recorder) throws IOException {
+            scratch.reset();
+            recorder.drainInto(scratch);
+            if (scratch.getCount() > 0) {
+                out.writeInt(client);
+                out.writeByte(kind);
+                out.writeInt(idx);
+                scratch.write(out);
+            }
+        }
+
+    }
+
+}
@@ -2,41 +2,72 @@ package engine;
 
 import engine.dto.BenchConf;
 import engine.dto.BenchResult;
+import engine.dto.LevelResult;
+import engine.output.ResultWriter;
 import engine.strategy.DatabaseStrategy;
+import engine.strategy.NoopStrategy;
 import engine.strategy.OracleStrategy;
 import engine.strategy.PostgresStrategy;
+import engine.strategy.SimulatedStrategy;
+import engine.utils.ErrorCounter;
+import engine.utils.LatencyAggregator;
+import engine.utils.LatencyRecorder;
 import engine.utils.MetricProvider;
+import engine.utils.PinningMonitor;
 import lombok.extern.log4j.Log4j2;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static engine.dto.BenchConf.DbEngine.NOOP;
 import static engine.dto.BenchConf.DbEngine.ORACLE;
 import static engine.dto.BenchConf.DbEngine.POSTGRES;
+import static engine.dto.BenchConf.DbEngine.SIMULATED;
+import static engine.dto.BenchConf.Output.NONE;
+import static engine.dto.BenchConf.ThreadModel.VIRTUAL;
 import static engine.dto.BenchResult.ExecStatus.KO;
+import static engine.utils.CommonUtils.formatDistributionRange;
+import static engine.utils.CommonUtils.formatPercentiles;
+import static engine.utils.CommonUtils.round;
 import static engine.utils.CommonUtils.smartElapsed;
 
 @Log4j2
 public class BenchEngine {
 
+    // number of one second throughput samples checked for steady state
+    private static final int STEADY_STATE_WINDOW = 10;
+
     private final BenchConf conf;
     private final DatabaseStrategy str;
-    private final ArrayList<Double> timings = new ArrayList<>();
-    private final Object lock = new Object();
+    // agents running the clients in distributed mode, null when they run locally
+    private List<AgentConnection> agents;
 
     public BenchEngine(BenchConf conf) throws UnsupportedOperationException {
         this.conf = conf;
+        this.str = newStrategy(conf);
+    }
+
+    static DatabaseStrategy newStrategy(BenchConf conf) throws UnsupportedOperationException {
         try {
             if (conf.getEngine() == ORACLE) {
-                str = new OracleStrategy(conf);
+                return new OracleStrategy(conf);
             } else if (conf.getEngine() == POSTGRES) {
-                str = new PostgresStrategy(conf);
+                return new PostgresStrategy(conf);
+            } else if (conf.getEngine() == NOOP) {
+                return new NoopStrategy(conf);
+            } else if (conf.getEngine() == SIMULATED) {
+                return new SimulatedStrategy(conf);
             } else {
                 throw new AssertionError("Unreachable code branch");
             }
@@ -45,55 +76,318 @@ public class BenchEngine {
         }
     }
 
+    // full cycle: initialization, measurement and cleanup
     public void run() {
+        init();
+        measure();
+        cleanup();
+    }
+
+    public void init() {
         log.info("*** PREPARING FOR BENCHMARK ***");
         try {
             prepareDatabase();
         } catch (SQLException ex) {
             throw new RuntimeException("Error while preparing database for benchmark: " + ex.getMessage(), ex);
         }
+    }
+
+    // measurement only, on a dataset left in place by a previous init
+    public void bench() {
+        log.info("*** CHECKING DATABASE ***");
+        try {
+            checkDatabase();
+        } catch (SQLException ex) {
+            throw new RuntimeException("Error while checking database: " + ex.getMessage(), ex);
+        }
+        measure();
+    }
+
+    public void cleanup() {
+        log.info("*** CLEANING UP ***");
+        try {
+            cleanupDatabase();
+        } catch (SQLException ex) {
+            throw new RuntimeException("Error while cleaning up database: " + ex.getMessage(), ex);
+        }
+    }
+
+    // clients only, on behalf of a coordinator that takes care of the database and of reporting
+    public void agent(String coordinator) {
+        log.info("*** STARTING AGENT ***");
+        try {
+            new BenchAgent(conf, coordinator).run();
+        } catch (IOException | ClassNotFoundException ex) {
+            throw new RuntimeException("Error while talking to coordinator: " + ex.getMessage(), ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running agent", ex);
+        }
+    }
+
+    private void measure() {
+        if (conf.getAgents() > 0) {
+            try {
+                agents = AgentConnection.acceptAll(conf);
+            } catch (IOException ex) {
+                throw new RuntimeException("Error while waiting for agents: " + ex.getMessage(), ex);
+            }
+        }
+        try (ResultWriter writer = conf.getOutput() != NONE ? ResultWriter.open(conf) : null) {
+            if (writer != null) {
+                writer.writeHeader(conf);
+            }
+            if (conf.getConcurrencySweep() == null || conf.getConcurrencySweep().isEmpty()) {
+                measure(conf.getConcurrency(), writer);
+            } else {
+                sweep(writer);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error while writing results: " + ex.getMessage(), ex);
+        } finally {
+            if (agents != null) {
+                agents.forEach(AgentConnection::close);
+                agents = null;
+            }
+        }
+    }
+
+    // same workload at increasing concurrency levels on the same dataset, to find the saturation point
+    private void sweep(ResultWriter writer) throws IOException {
+        List<LevelResult> results = new ArrayList<>(conf.getConcurrencySweep().size());
+        double peakTps = 0;
+        for (int concurrency : conf.getConcurrencySweep()) {
+            if (!results.isEmpty() && conf.getCooldown() > 0) {
+                log.info("Cooling down for {} seconds...", conf.getCooldown());
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(conf.getCooldown()));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            LevelResult res = measure(concurrency, writer);
+            if (res == null) {
+                break;
+            }
+            results.add(res);
+            peakTps = Math.max(peakTps, res.getTps());
+            if (conf.getSweepStopDrop() > 0 && res.getTps() < peakTps * (1d - conf.getSweepStopDrop() / 100d)) {
+                log.info("Throughput dropped more than {}% below the peak of {} tps, stopping sweep", conf.getSweepStopDrop(), round(peakTps));
+                break;
+            }
+        }
 
+        log.info("*** CONCURRENCY SWEEP RESULT ***");
+        StringBuilder header = new StringBuilder(String.format("%8s %12s %8s %10s", "clients", "tps", "failed", "avg ms"));
+        for (double p : conf.getPercentiles()) {
+            header.append(String.format(" %10s", "p" + BigDecimal.valueOf(p).stripTrailingZeros().toPlainString() + " ms"));
+        }
+        header.append(String.format(" %10s", "max ms"));
+        log.info(header);
+        for (LevelResult res : results) {
+            StringBuilder line = new StringBuilder(String.format("%8d %12s %8d %10s", res.getConcurrency(), round(res.getTps()), res.getFailed(), round(res.getLatency().getMean())));
+            for (double v : res.getLatency().getPercentileValues()) {
+                line.append(String.format(" %10s", round(v)));
+            }
+            line.append(String.format(" %10s", round(res.getLatency().getMax())));
+            log.info(line);
+        }
+    }
+
+    private LevelResult measure(int concurrency, ResultWriter writer) throws IOException {
         try {
-            // let settle down a bit
-            Thread.sleep(5000);
+            // let settle down a bit, unless a warm-up period already takes care of it
+            if (conf.getWarmup() == 0) {
+                Thread.sleep(5000);
+            }
 
             // preparing threads
-            ExecutorService tPool = Executors.newFixedThreadPool(conf.getConcurrency() + 1);
-            ArrayList<Callable<BenchResult>> tList = new ArrayList<>(conf.getConcurrency() + 1);
-            List<Future<BenchResult>> tRes;
-            // calculate execution deadline
-            Calendar cal = Calendar.getInstance();
-            cal.setLenient(false);
-            cal.add(Calendar.SECOND, conf.getTime());
-            long deadline = cal.getTimeInMillis();
-            for (int i = 0; i < conf.getConcurrency(); i++) {
-                tList.add(new DatabaseWorker(conf, str, deadline, timings, lock));
+            ExecutorService tPool;
+            PinningMonitor pinningMonitor = null;
+            if (agents != null) {
+                // clients run on agents, local threads only wait for their results
+                tPool = Executors.newVirtualThreadPerTaskExecutor();
+            } else if (conf.getThreadModel() == VIRTUAL) {
+                // watching for carriers pinned by synchronized sections, that would limit the achievable concurrency
+                pinningMonitor = new PinningMonitor();
+                tPool = Executors.newVirtualThreadPerTaskExecutor();
+            } else {
+                tPool = Executors.newFixedThreadPool(concurrency + 1);
+            }
+            ArrayList<Callable<BenchResult>> tList = new ArrayList<>(concurrency + 1);
+            List<Future<BenchResult>> tRes = new ArrayList<>(concurrency + 1);
+            // in throttled mode all clients share a single schedule of intended start times
+            TransactionSchedule schedule = null;
+            if (conf.getRate() > 0) {
+                schedule = new TransactionSchedule(conf.getRate(), TimeUnit.SECONDS.toNanos(conf.getWarmup() + conf.getTime()));
+            }
+            AtomicLong deadline = new AtomicLong();
+            CountDownLatch connected = new CountDownLatch(concurrency);
+            CountDownLatch start = new CountDownLatch(1);
+            // agents drop what their clients recorded during warm-up on their own, then tell the coordinator
+            CountDownLatch warmedUp = new CountDownLatch(agents != null ? agents.size() : 0);
+            LatencyAggregator aggregator = new LatencyAggregator(concurrency);
+            LatencyAggregator lagAggregator = new LatencyAggregator(concurrency);
+            LatencyAggregator connectAggregator = new LatencyAggregator(concurrency);
+            LatencyAggregator retryAggregator = new LatencyAggregator(concurrency);
+            LatencyAggregator poolWaitAggregator = new LatencyAggregator(concurrency);
+            // clients share a pool of sessions only when there are fewer connections than clients
+            SessionPool pool = conf.getConnections() > 0 && conf.getConnections() < concurrency ? new SessionPool(conf.getConnections()) : null;
+            ErrorCounter errorCounter = new ErrorCounter();
+            List<LatencyAggregator> scriptAggregators = new ArrayList<>(conf.getScripts().size());
+            for (int i = 0; i < conf.getScripts().size(); i++) {
+                scriptAggregators.add(new LatencyAggregator(concurrency));
+            }
+            List<String> commandNames = conf.isReportPerCommand() ? str.getCommandNames() : List.of();
+            List<LatencyAggregator> commandAggregators = new ArrayList<>(commandNames.size());
+            for (int i = 0; i < commandNames.size(); i++) {
+                commandAggregators.add(new LatencyAggregator(concurrency));
+            }
+            List<WorkerRecorders> remoteRecs = new ArrayList<>(agents != null ? concurrency : 0);
+            List<CompletableFuture<BenchResult>> remoteResults = new ArrayList<>(agents != null ? concurrency : 0);
+            for (int i = 0; i < concurrency; i++) {
+                WorkerRecorders rec = new WorkerRecorders(aggregator.getRecorder(i), lagAggregator.getRecorder(i), connectAggregator.getRecorder(i),
+                        retryAggregator.getRecorder(i), poolWaitAggregator.getRecorder(i), getRecorders(scriptAggregators, i), conf.isReportPerCommand() ? getRecorders(commandAggregators, i) : null,
+                        errorCounter);
+                if (agents != null) {
+                    CompletableFuture<BenchResult> result = new CompletableFuture<>();
+                    remoteRecs.add(rec);
+                    remoteResults.add(result);
+                    tList.add(result::join);
+                } else {
+                    tList.add(new DatabaseWorker(conf, str, deadline, schedule, connected, start, pool, rec));
+                }
+            }
+            // clients are spread evenly among agents, each one driven by a local thread after all clients
+            if (agents != null) {
+                int from = 0;
+                for (int i = 0; i < agents.size(); i++) {
+                    int to = (int) ((long) concurrency * (i + 1) / agents.size());
+                    tList.add(agents.get(i).level(remoteRecs.subList(from, to), remoteResults.subList(from, to), conf.getRate() * (to - from) / concurrency,
+                            deadline, connected, start, warmedUp));
+                    from = to;
+                }
             }
-            tList.add(new ProgressWorker(conf, deadline, timings, lock));
 
-            // launching threads
+            // launching threads, they all connect and then wait for the start barrier
             log.info("*** STARTING BENCHMARK ***");
-            log.info("Starting {} concurrent threads...", conf.getConcurrency());
-            long startTime = System.nanoTime();
-            tRes = tPool.invokeAll(tList);
+            if (agents != null) {
+                log.info("Starting {} concurrent clients on {} agents...", concurrency, agents.size());
+            } else {
+                log.info("Starting {} concurrent {} threads...", concurrency, conf.getThreadModel().toString().toLowerCase());
+            }
+            long connectStart = System.nanoTime();
+            for (Callable<BenchResult> t : tList) {
+                tRes.add(tPool.submit(t));
+            }
+            connected.await();
+            connectAggregator.collect();
+            // initial connections are kept apart, from now on the aggregator gathers reconnections only
+            MetricProvider connect = new MetricProvider(connectAggregator.getTotal(), conf.getPercentiles());
+            connectAggregator.reset();
+            if (pool != null) {
+                log.info("{} pooled connections opened for {} clients in {}", connect.getCount(), concurrency,
+                        smartElapsed(System.nanoTime() - connectStart));
+            } else {
+                log.info("{} clients connected in {}", connect.getCount(), smartElapsed(System.nanoTime() - connectStart));
+            }
+            // calculate execution deadline, warm-up included, it is moved earlier if steady state is reached sooner
+            Calendar cal = Calendar.getInstance();
+            cal.setLenient(false);
+            cal.add(Calendar.SECOND, conf.getWarmup() + conf.getTime());
+            deadline.set(cal.getTimeInMillis());
+            if (schedule != null) {
+                schedule.start(System.nanoTime());
+            }
+            start.countDown();
+            tRes.add(tPool.submit(new ProgressWorker(conf, deadline, concurrency, aggregator, lagAggregator, commandNames, commandAggregators, writer)));
             tPool.shutdown();
+            long warmupNano = 0;
+            if (conf.getWarmup() > 0) {
+                // clients keep running, but whatever they recorded so far is discarded
+                long warmupStart = System.nanoTime();
+                boolean steady = conf.getSteadyState() > 0 ? awaitSteadyState(aggregator) : sleepWarmup();
+                // warm-up samples streamed by agents are all in the recorders once they are warmed up, and discarded with the rest
+                warmedUp.await();
+                aggregator.reset();
+                lagAggregator.reset();
+                connectAggregator.reset();
+                retryAggregator.reset();
+                poolWaitAggregator.reset();
+                errorCounter.reset();
+                scriptAggregators.forEach(LatencyAggregator::reset);
+                commandAggregators.forEach(LatencyAggregator::reset);
+                warmupNano = System.nanoTime() - warmupStart;
+                if (conf.getSteadyState() > 0) {
+                    deadline.set(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(conf.getTime()));
+                }
+                if (conf.getSteadyState() > 0 && !steady) {
+                    log.warn("Steady state not reached within the maximum warm-up time, starting measurement anyway");
+                } else {
+                    log.info("Warm-up completed, starting measurement");
+                }
+            }
+            long startTime = System.nanoTime();
             waitAll(tRes);
             long endTime = System.nanoTime();
-
-            try {
-                cleanupDatabase();
-            } catch (SQLException ex) {
-                throw new RuntimeException("Error while cleaning up database: " + ex.getMessage(), ex);
+            if (pool != null) {
+                pool.close();
+            }
+            aggregator.collect();
+            lagAggregator.collect();
+            connectAggregator.collect();
+            retryAggregator.collect();
+            poolWaitAggregator.collect();
+            scriptAggregators.forEach(LatencyAggregator::collect);
+            commandAggregators.forEach(LatencyAggregator::collect);
+            if (pinningMonitor != null) {
+                pinningMonitor.close();
             }
 
             // printing result
             log.info("*** BENCHMARK RESULT ***");
             log.info("Scale factor: {}", conf.getScale());
-            log.info("Number of concurrent clients: {}", conf.getConcurrency());
+            log.info("Number of concurrent clients: {}", concurrency);
+            if (conf.getScripts().isEmpty()) {
+                log.info("Key distribution: {}", conf.getDistribution());
+            }
+            log.info("Isolation level: {}", conf.getIsolation().toString().toLowerCase());
+            if (conf.getEngine() == SIMULATED) {
+                log.info("Simulated round trip latency: {} ms, row locks {}", conf.getSimulatedLatency(), conf.isSimulatedLocks() ? "enabled" : "disabled");
+            }
+            double roundTrips = str.getRoundTrips();
+            log.info("Protocol: {}, {} round trips per transaction", conf.getProtocol().toString().toLowerCase(), round(roundTrips).stripTrailingZeros().toPlainString());
 
             long elapsedNano = endTime - startTime;
             double elapsedSec = ((double) (endTime - startTime)) / 1_000_000_000d;
             log.info("Total time elapsed: {}", smartElapsed(elapsedNano));
+            if (warmupNano > 0) {
+                log.info("Warm-up time excluded: {}", smartElapsed(warmupNano));
+            }
+
+            if (pinningMonitor != null) {
+                // shorter pinnings are not recorded, as jdk.VirtualThreadPinned does by default
+                if (pinningMonitor.getCount() == 0) {
+                    log.info("Virtual thread pinning: no pinning events of at least {}", smartElapsed(PinningMonitor.THRESHOLD.toNanos()));
+                } else {
+                    log.warn("Virtual thread pinning: {} pinning events of at least {}, {} pinned in total, top pinning sites:",
+                            pinningMonitor.getCount(), smartElapsed(PinningMonitor.THRESHOLD.toNanos()), smartElapsed(pinningMonitor.getDurationNano()));
+                    for (String site : pinningMonitor.getTopSites(5)) {
+                        log.warn("  {}", site);
+                    }
+                }
+            }
+
+            if (connect.getCount() > 0) {
+                log.info("Connection time: {} connections, min {} ms, avg {} ms, max {} ms",
+                        connect.getCount(), round(connect.getMin()), round(connect.getMean()), round(connect.getMax()));
+            }
+            MetricProvider reconnect = conf.getReconnect() > 0 ? new MetricProvider(connectAggregator.getTotal(), conf.getPercentiles()) : null;
+            if (reconnect != null && reconnect.getCount() > 0) {
+                log.info("Reconnection time: {} reconnections, min {} ms, avg {} ms, max {} ms",
+                        reconnect.getCount(), round(reconnect.getMin()), round(reconnect.getMean()), round(reconnect.getMax()));
+            }
 
             for (Future<BenchResult> f : tRes) {
                 if (f.get().getStatus() == KO) {
@@ -101,34 +395,191 @@ public class BenchEngine {
                 }
             }
 
-            if (timings.isEmpty()) {
+            if (aggregator.getTotal().getCount() == 0) {
                 log.info("No transaction processed, no result to show");
-                return;
+                return null;
             }
 
             // calculating metrics
-            MetricProvider mp = new MetricProvider(timings);
-            int totTrans = mp.getCount();
+            MetricProvider mp = new MetricProvider(aggregator.getTotal(), conf.getPercentiles());
+            long totTrans = mp.getCount();
             log.info("Total number of transactions processed: {}", totTrans);
+            log.info("Total number of failed transactions: {} ({}%)", aggregator.getErrors(), round(100d * aggregator.getErrors() / (aggregator.getErrors() + totTrans)));
+            MetricProvider retried = new MetricProvider(retryAggregator.getTotal(), conf.getPercentiles());
+            if (conf.getMaxTries() > 1) {
+                log.info("Total number of retried transactions: {} ({} retries)", retried.getCount(), aggregator.getRetries());
+            }
+            // every try either commits, is retried or fails the transaction
+            long aborts = aggregator.getRetries() + aggregator.getErrors();
+            log.info("Abort rate: {}% of {} tries", round(100d * aborts / (aborts + totTrans)), aborts + totTrans);
             double rawTime = mp.getSum();
 
             double totTps = (double) totTrans / elapsedSec;
-            log.info("Transactions per second: {} (including connection and client overhead)", BigDecimal.valueOf(totTps).setScale(3, RoundingMode.HALF_UP));
+            log.info("Transactions per second: {} (including {}client overhead)", BigDecimal.valueOf(totTps).setScale(3, RoundingMode.HALF_UP),
+                    conf.getReconnect() > 0 ? "connection and " : "");
 
-            double rawTps = (double) totTrans / (rawTime / 1_000d / (double) conf.getConcurrency());
+            // with a pool at most as many transactions as connections run at the same time
+            int connections = pool != null ? pool.getSize() : concurrency;
+            double rawTps = (double) totTrans / (rawTime / 1_000d / (double) connections);
             log.info("Transactions per second: {} (excluding connection and client overhead)", BigDecimal.valueOf(rawTps).setScale(3, RoundingMode.HALF_UP));
 
             double avgLatency = mp.getMean();
             log.info("Average latency: {} ms", BigDecimal.valueOf(avgLatency).setScale(3, RoundingMode.HALF_UP));
+            // what is left once divided by round trips is network latency plus the engine cost of a single statement
+            log.info("Average latency per round trip: {} ms", BigDecimal.valueOf(avgLatency / roundTrips).setScale(3, RoundingMode.HALF_UP));
 
             double stdDev = mp.getStddev();
             log.info("Latency stddev: {}  ms", BigDecimal.valueOf(stdDev).setScale(3, RoundingMode.HALF_UP));
+
+            log.info("Latency percentiles: {}", formatPercentiles(mp));
+
+            if (conf.getRate() > 0) {
+                MetricProvider lag = new MetricProvider(lagAggregator.getTotal(), conf.getPercentiles());
+                log.info("Target rate: {} tps", round(conf.getRate()));
+                log.info("Latency is measured from the scheduled start time, schedule lag is included");
+                log.info("Average schedule lag: {} ms", round(lag.getMean()));
+                log.info("Schedule lag percentiles: {}", formatPercentiles(lag));
+                if (conf.getLatencyLimit() > 0) {
+                    log.info("Transactions skipped because later than {} ms: {} ({}%)", conf.getLatencyLimit(), aggregator.getSkipped(),
+                            round(100d * aggregator.getSkipped() / (aggregator.getSkipped() + totTrans)));
+                }
+            }
+
+            MetricProvider poolWait = null;
+            if (pool != null) {
+                poolWait = new MetricProvider(poolWaitAggregator.getTotal(), conf.getPercentiles());
+                log.info("Connection pool: {} connections shared by {} clients", pool.getSize(), concurrency);
+                log.info("Average pool wait: {} ms", round(poolWait.getMean()));
+                log.info("Pool wait percentiles: {}", formatPercentiles(poolWait));
+            }
+
+            if (retried.getCount() > 0) {
+                log.info("Retried transactions average latency: {} ms", round(retried.getMean()));
+                log.info("Retried transactions latency percentiles: {}", formatPercentiles(retried));
+            }
+
+            if (!errorCounter.getCounts().isEmpty()) {
+                log.info("Errors by type:");
+                errorCounter.getCounts().forEach((error, count) -> log.info("  {}: {}", error, count));
+            }
+
+            log.info("Latency distribution:");
+            for (int i = 0; i < mp.getDistribution().length; i++) {
+                if (mp.getDistribution()[i] > 0) {
+                    log.info("  {}: {} ({}%)", formatDistributionRange(i), mp.getDistribution()[i], round(100d * mp.getDistribution()[i] / mp.getCount()));
+                }
+            }
+
+            // per script summaries, when running a mix of custom scripts
+            Map<String, MetricProvider> scriptResults = new LinkedHashMap<>();
+            if (!scriptAggregators.isEmpty()) {
+                log.info("Per script results:");
+                for (int i = 0; i < scriptAggregators.size(); i++) {
+                    MetricProvider smp = new MetricProvider(scriptAggregators.get(i).getTotal(), conf.getPercentiles());
+                    scriptResults.put(conf.getScripts().get(i).getName(), smp);
+                    log.info("  {} (weight {}): {} transactions, {} tps, {} ms average, {}", conf.getScripts().get(i).getName(), conf.getScripts().get(i).getWeight(),
+                            smp.getCount(), round((double) smp.getCount() / elapsedSec), round(smp.getMean()), formatPercentiles(smp));
+                }
+            }
+
+            // per command summaries, to tell which statement or the commit is slowing transactions down
+            Map<String, MetricProvider> commandResults = new LinkedHashMap<>();
+            if (!commandAggregators.isEmpty()) {
+                log.info("Per command results:");
+                for (int i = 0; i < commandAggregators.size(); i++) {
+                    MetricProvider cmp = new MetricProvider(commandAggregators.get(i).getTotal(), conf.getPercentiles());
+                    if (cmp.getCount() > 0) {
+                        commandResults.put(commandNames.get(i), cmp);
+                        log.info("  {} ms average, {}: {}", round(cmp.getMean()), formatPercentiles(cmp), commandNames.get(i));
+                    }
+                }
+            }
+
+            // per client summaries, to spot failing or slow clients
+            log.info("Per client results:");
+            List<BenchResult> clientResults = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                BenchResult res = tRes.get(i).get();
+                clientResults.add(res);
+                res.setLatency(new MetricProvider(aggregator.getHistogram(i), conf.getPercentiles()));
+                log.info("  client {}: {} transactions, {} ms average, {}{}", i + 1, res.getLatency().getCount(),
+                        round(res.getLatency().getMean()), formatPercentiles(res.getLatency()), res.getStatus() == KO ? " (failed)" : "");
+            }
+
+            LevelResult ret = new LevelResult();
+            ret.setConcurrency(concurrency);
+            ret.setElapsedNano(elapsedNano);
+            ret.setWarmupNano(warmupNano);
+            ret.setTps(totTps);
+            ret.setRawTps(rawTps);
+            ret.setRoundTrips(roundTrips);
+            ret.setFailed(aggregator.getErrors());
+            ret.setRetries(aggregator.getRetries());
+            ret.setSkipped(aggregator.getSkipped());
+            ret.setLatency(mp);
+            ret.setRetriedLatency(retried);
+            ret.setLag(conf.getRate() > 0 ? new MetricProvider(lagAggregator.getTotal(), conf.getPercentiles()) : null);
+            ret.setConnect(connect);
+            ret.setReconnect(reconnect);
+            ret.setPoolWait(poolWait);
+            ret.setErrors(errorCounter.getCounts());
+            ret.setScripts(scriptResults);
+            ret.setCommands(commandResults);
+            ret.setClients(clientResults);
+            if (writer != null) {
+                writer.writeLevel(ret);
+            }
+            return ret;
         } catch (InterruptedException | ExecutionException ex) {
             // should never happen
             log.error("Unexpected {}: {}", ex.getClass().getSimpleName(), ex.getMessage());
+            return null;
         }
     }
 
+    // recorders of the given worker, one for each aggregator
+    private static LatencyRecorder[] getRecorders(List<LatencyAggregator> aggregators, int idx) {
+        LatencyRecorder[] ret = new LatencyRecorder[aggregators.size()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = aggregators.get(i).getRecorder(idx);
+        }
+        return ret;
+    }
+
+    private boolean sleepWarmup() throws InterruptedException {
+        Thread.sleep(TimeUnit.SECONDS.toMillis(conf.getWarmup()));
+        return true;
+    }
+
+    // samples throughput every second during warm-up, until the coefficient of variation of the last
+    // STEADY_STATE_WINDOW samples falls below the threshold or the maximum warm-up time is over
+    private boolean awaitSteadyState(LatencyAggregator aggregator) throws InterruptedException {
+        long sampleNano = TimeUnit.SECONDS.toNanos(1);
+        long startTime = System.nanoTime();
+        long endTime = startTime + TimeUnit.SECONDS.toNanos(conf.getWarmup());
+        long nextTime = startTime + sampleNano;
+        long[] samples = new long[STEADY_STATE_WINDOW];
+        int taken = 0;
+        long lastCount = aggregator.collectCount();
+        while (nextTime <= endTime) {
+            TimeUnit.NANOSECONDS.sleep(nextTime - System.nanoTime());
+            long count = aggregator.collectCount();
+            samples[taken++ % STEADY_STATE_WINDOW] = count - lastCount;
+            lastCount = count;
+            nextTime += sampleNano;
+            if (taken >= STEADY_STATE_WINDOW) {
+                double mean = Arrays.stream(samples).average().orElse(0);
+                double variance = Arrays.stream(samples).mapToDouble(v -> (v - mean) * (v - mean)).sum() / STEADY_STATE_WINDOW;
+                if (mean > 0 && Math.sqrt(variance) / mean * 100d <= conf.getSteadyState()) {
+                    log.info("Steady state reached after {}, throughput variation {}% over the last {} seconds",
+                            smartElapsed(System.nanoTime() - startTime), round(Math.sqrt(variance) / mean * 100d), STEADY_STATE_WINDOW);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     private void waitAll(List<Future<BenchResult>> tRes) {
         for (Future<BenchResult> f : tRes) {
             try {
@@ -145,10 +596,20 @@ public class BenchEngine {
             str.createTables(c);
             str.populateTables(c);
             str.createIndexes(c);
+            str.createProcedure(c);
             str.analyzeTables(c);
         }
     }
 
+    private void checkDatabase() throws SQLException {
+        try (Connection c = str.doConnect()) {
+            str.checkTables(c);
+            if (conf.isTruncateHistory()) {
+                str.truncateHistory(c);
+            }
+        }
+    }
+
     private void cleanupDatabase() throws SQLException {
         try (Connection c = str.doConnect()) {
             str.dropTables(c);
@@ -1,67 +1,269 @@
 package engine;
 
+import engine.distribution.KeyGenerator;
 import engine.dto.BenchConf;
 import engine.dto.BenchResult;
+import engine.script.WorkloadScript;
+import engine.strategy.DatabaseSession;
 import engine.strategy.DatabaseStrategy;
 
-import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Date;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+import static engine.dto.BenchConf.Protocol.PIPELINE;
+import static engine.dto.BenchConf.Protocol.PROCEDURE;
 import static engine.dto.BenchResult.ExecStatus.KO;
 import static engine.dto.BenchResult.ExecStatus.OK;
 
 public class DatabaseWorker implements Callable<BenchResult> {
 
+    // seconds allowed to the driver to validate the connection before the start barrier
+    private static final int VALIDATION_TIMEOUT_SEC = 30;
+
     private final BenchConf conf;
     private final DatabaseStrategy str;
-    private final long deadline;
-    private final ArrayList<Double> timings;
-    private final Object lock;
+    private final AtomicLong deadline;
+    private final TransactionSchedule schedule;
+    private final CountDownLatch connected;
+    private final CountDownLatch start;
+    // null when every client has a connection of its own
+    private final SessionPool pool;
+    private final WorkerRecorders rec;
+    private final long latencyLimitNano;
+    // key generators of the built-in transaction
+    private final KeyGenerator bidGenerator;
+    private final KeyGenerator tidGenerator;
+    private final KeyGenerator aidGenerator;
+    // variables of custom scripts are drawn into arrays allocated once
+    private final List<WorkloadScript> scripts;
+    private final long[][] scriptValues;
+    private final int totalWeight;
+    // session of the client, or the one borrowed from the pool for the transaction in progress
+    private DatabaseSession s;
+    private long transactions;
 
-    public DatabaseWorker(BenchConf conf, DatabaseStrategy str, long deadline, ArrayList<Double> timings, Object lock) {
+    public DatabaseWorker(BenchConf conf, DatabaseStrategy str, AtomicLong deadline, TransactionSchedule schedule, CountDownLatch connected, CountDownLatch start,
+                          SessionPool pool, WorkerRecorders rec) {
         this.conf = conf;
         this.str = str;
         this.deadline = deadline;
-        this.timings = timings;
-        this.lock = lock;
+        this.schedule = schedule;
+        this.connected = connected;
+        this.start = start;
+        this.pool = pool;
+        this.rec = rec;
+        this.latencyLimitNano = TimeUnit.MILLISECONDS.toNanos(conf.getLatencyLimit());
+        this.bidGenerator = conf.getDistribution().newGenerator(1, conf.getScale());
+        this.tidGenerator = conf.getDistribution().newGenerator(1, conf.getScale() * 10L);
+        this.aidGenerator = conf.getDistribution().newGenerator(1, conf.getScale() * 100000L);
+        this.scripts = conf.getScripts();
+        this.scriptValues = new long[scripts.size()][];
+        int weight = 0;
+        for (int i = 0; i < scripts.size(); i++) {
+            scriptValues[i] = new long[scripts.get(i).getVariables().size()];
+            weight += scripts.get(i).getWeight();
+        }
+        this.totalWeight = weight;
     }
 
     @Override
     public BenchResult call() throws Exception {
         BenchResult ret = new BenchResult();
-        // connecting to database
-        try (Connection c = str.doConnect()) {
+        // connecting to database, then waiting for all other clients so that the connection storm stays out of the measurement
+        try {
+            connect();
+        } catch (SQLException | RuntimeException ex) {
+            return fail(ret, ex);
+        } finally {
+            connected.countDown();
+        }
+        start.await();
+        try {
             // entering loop
-            while (new Date().getTime() < deadline) {
-                // randomizing ids
-                long bid = ThreadLocalRandom.current().nextLong(1, conf.getScale() + 1);
-                long tid = ThreadLocalRandom.current().nextLong(1, conf.getScale() * 10L + 1);
-                long aid = ThreadLocalRandom.current().nextLong(1, conf.getScale() * 100000L + 1);
-                int delta = ThreadLocalRandom.current().nextInt(-5000, 5001);
-                long startTime = System.nanoTime();
-                if (conf.isReadOnly()) {
-                    str.runReadOnlyTransaction(c, bid, tid, aid);
+            boolean running = true;
+            while (running) {
+                running = runNext();
+            }
+        } catch (SQLException | RuntimeException ex) {
+            // connection lost or something unexpected, return anyway what done until now
+            return fail(ret, ex);
+        } finally {
+            closeSession();
+        }
+        ret.setStatus(OK);
+        return ret;
+    }
+
+    // with a pool only as many clients as its size connect, handing their session over to it
+    void connect() throws SQLException {
+        if (pool == null || pool.claimConnection()) {
+            long connectStart = System.nanoTime();
+            s = str.openSession(rec.getCommands());
+            try {
+                if (!s.getConnection().isValid(VALIDATION_TIMEOUT_SEC)) {
+                    throw new SQLException("Connection validation failed");
+                }
+            } catch (SQLException ex) {
+                s.close();
+                s = null;
+                throw ex;
+            }
+            rec.getConnect().record(System.nanoTime() - connectStart);
+            if (pool != null) {
+                pool.add(s);
+                s = null;
+            }
+        }
+    }
+
+    // a single iteration of the client loop, running a transaction or skipping it, false once the run is over
+    boolean runNext() throws SQLException, InterruptedException {
+        if (System.currentTimeMillis() >= deadline.get()) {
+            return false;
+        }
+        // in throttled mode, waiting for the intended start time of the next scheduled transaction
+        long intendedTime = 0;
+        if (schedule != null) {
+            intendedTime = schedule.nextStartTime();
+            if (intendedTime >= schedule.getEndTime()) {
+                return false;
+            }
+            long wait;
+            while ((wait = intendedTime - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+        // randomizing ids, or picking a custom script according to weights and drawing its variables
+        long bid = 0, tid = 0, aid = 0;
+        int delta = 0;
+        int scriptIdx = -1;
+        if (totalWeight > 0) {
+            scriptIdx = pickScript(scripts, ThreadLocalRandom.current().nextInt(totalWeight));
+            scripts.get(scriptIdx).generate(scriptValues[scriptIdx]);
+        } else {
+            bid = bidGenerator.next();
+            tid = tidGenerator.next();
+            aid = aidGenerator.next();
+            delta = ThreadLocalRandom.current().nextInt(-5000, 5001);
+        }
+        // borrowing a session for this transaction only, waiting time is not part of the latency unless throttled
+        if (pool != null) {
+            long waitStart = System.nanoTime();
+            s = pool.borrow(deadline.get());
+            if (s == null) {
+                return false;
+            }
+            s.setCommandRecorders(rec.getCommands());
+            rec.getPoolWait().record(System.nanoTime() - waitStart);
+        }
+        long startTime = System.nanoTime();
+        if (schedule != null) {
+            long lag = startTime - intendedTime;
+            // already too late, skipping the transaction altogether
+            if (latencyLimitNano > 0 && lag > latencyLimitNano) {
+                rec.getLatency().recordSkipped();
+                if (pool != null) {
+                    pool.release(s);
+                    s = null;
+                }
+                return true;
+            }
+            rec.getLag().record(lag);
+            // measuring from the intended start time, so that database stalls are not hidden by coordinated omission
+            startTime = intendedTime;
+        }
+        // deliberately paying connection setup again, its time is part of the transaction latency as in pgbench -C
+        if (conf.getReconnect() > 0 && transactions > 0 && transactions % conf.getReconnect() == 0) {
+            long connectStart = System.nanoTime();
+            s.close();
+            s = str.openSession(rec.getCommands());
+            rec.getConnect().record(System.nanoTime() - connectStart);
+        }
+        // retrying with the same values after errors that are worth it, the others fail the transaction but not the client
+        int tries = 0;
+        boolean failed = false;
+        while (true) {
+            try {
+                if (scriptIdx >= 0) {
+                    str.runScript(s, scriptIdx, scriptValues[scriptIdx]);
+                } else if (conf.isReadOnly()) {
+                    str.runReadOnlyTransaction(s, bid, tid, aid);
+                } else if (conf.getProtocol() == PROCEDURE) {
+                    str.runProcedureTransaction(s, bid, tid, aid, delta);
+                } else if (conf.getProtocol() == PIPELINE) {
+                    str.runPipelinedTransaction(s, bid, tid, aid, delta);
                 } else {
-                    str.runWriteTransaction(c, bid, tid, aid, delta);
+                    str.runWriteTransaction(s, bid, tid, aid, delta);
+                }
+                break;
+            } catch (SQLException ex) {
+                if (str.isConnectionError(ex)) {
+                    throw ex;
                 }
-                long endTime = System.nanoTime();
-                double elapsedMs = ((double) (endTime - startTime)) / 1_000_000d;
-                synchronized (lock) {
-                    timings.add(elapsedMs);
+                rec.getErrors().record(str.describeError(ex));
+                s.getConnection().rollback();
+                if (++tries < conf.getMaxTries() && str.isRetryable(ex)) {
+                    rec.getLatency().recordRetry();
+                    continue;
                 }
+                failed = true;
+                break;
             }
-        } catch (SQLException | RuntimeException ex) {
-            // if something goes wrong, return anyway what done until now
-            ret.setStatus(KO);
-            ret.setEx(ex);
-            return ret;
         }
-        ret.setStatus(OK);
+        long endTime = System.nanoTime();
+        if (pool != null) {
+            pool.release(s);
+            s = null;
+        }
+        if (failed) {
+            rec.getLatency().recordError();
+        } else {
+            rec.getLatency().record(endTime - startTime);
+            if (tries > 0) {
+                rec.getRetried().record(endTime - startTime);
+            }
+            if (scriptIdx >= 0) {
+                rec.getScripts()[scriptIdx].record(endTime - startTime);
+            }
+        }
+        transactions++;
+        return true;
+    }
+
+    // a pooled session is still held only if its connection was lost, it is closed and the pool shrinks accordingly
+    void closeSession() {
+        if (s != null) {
+            try {
+                s.close();
+            } catch (SQLException ex) {
+                // measurement is over, nothing to do
+            }
+            s = null;
+        }
+    }
+
+    private BenchResult fail(BenchResult ret, Exception ex) {
+        rec.getLatency().recordError();
+        rec.getErrors().record(ex instanceof SQLException sqlEx ? str.describeError(sqlEx) : ex.getClass().getSimpleName());
+        ret.setStatus(KO);
+        ret.setEx(ex);
         return ret;
     }
 
+    private static int pickScript(List<WorkloadScript> scripts, int draw) {
+        for (int i = 0; i < scripts.size(); i++) {
+            draw -= scripts.get(i).getWeight();
+            if (draw < 0) {
+                return i;
+            }
+        }
+        throw new AssertionError("Unreachable code branch");
+    }
+
 }
@@ -2,55 +2,109 @@ package engine;
 
 import engine.dto.BenchConf;
 import engine.dto.BenchResult;
+import engine.dto.IntervalResult;
+import engine.output.ResultWriter;
+import engine.utils.LatencyAggregator;
+import engine.utils.LatencyHistogram;
 import engine.utils.MetricProvider;
 import lombok.extern.log4j.Log4j2;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.ArrayList;
-import java.util.Date;
+import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static engine.dto.BenchResult.ExecStatus.OK;
+import static engine.utils.CommonUtils.formatDistribution;
+import static engine.utils.CommonUtils.formatPercentiles;
+import static engine.utils.CommonUtils.round;
 
 @Log4j2
 public class ProgressWorker implements Callable<BenchResult> {
 
-    private static final int INTERVAL_SEC = 60;
-
     private final BenchConf conf;
-    private final long deadline;
-    private final ArrayList<Double> timings;
-    private final Object lock;
+    private final AtomicLong deadline;
+    private final int concurrency;
+    private final LatencyAggregator aggregator;
+    private final LatencyAggregator lagAggregator;
+    private final List<String> commandNames;
+    private final List<LatencyAggregator> commandAggregators;
+    // null when no structured output is requested
+    private final ResultWriter writer;
+    private final LatencyHistogram interval = new LatencyHistogram();
+    private final LatencyHistogram lagInterval = new LatencyHistogram();
+    private final LatencyHistogram commandInterval = new LatencyHistogram();
 
-    public ProgressWorker(BenchConf conf, long deadline, ArrayList<Double> timings, Object lock) {
+    public ProgressWorker(BenchConf conf, AtomicLong deadline, int concurrency, LatencyAggregator aggregator, LatencyAggregator lagAggregator,
+                          List<String> commandNames, List<LatencyAggregator> commandAggregators, ResultWriter writer) {
         this.conf = conf;
         this.deadline = deadline;
-        this.timings = timings;
-        this.lock = lock;
+        this.concurrency = concurrency;
+        this.aggregator = aggregator;
+        this.lagAggregator = lagAggregator;
+        this.commandNames = commandNames;
+        this.commandAggregators = commandAggregators;
+        this.writer = writer;
     }
 
     @Override
     public BenchResult call() throws Exception {
         BenchResult ret = new BenchResult();
         ret.setStatus(OK);
+        if (conf.getProgress() == 0) {
+            return ret;
+        }
+        long intervalNano = TimeUnit.SECONDS.toNanos(conf.getProgress());
+        long startTime = System.nanoTime();
+        long lastTime = startTime;
+        long nextTime = startTime + intervalNano;
         // entering loop
-        while (new Date().getTime() + (INTERVAL_SEC * 1000) < deadline) {
-            Thread.sleep(INTERVAL_SEC * 1000);
-            // calculating partial stats
-            MetricProvider mp;
-            synchronized (lock) {
-                mp = new MetricProvider(timings);
+        while (System.currentTimeMillis() + (conf.getProgress() * 1000L) < deadline.get()) {
+            // sleeping until the next interval boundary, so that report times do not drift
+            TimeUnit.NANOSECONDS.sleep(nextTime - System.nanoTime());
+            // calculating stats of the last interval only
+            aggregator.takeInterval(interval);
+            lagAggregator.takeInterval(lagInterval);
+            long now = System.nanoTime();
+            MetricProvider mp = new MetricProvider(interval, conf.getPercentiles());
+            double intervalSec = ((double) (now - lastTime)) / 1_000_000_000d;
+            double tps = (double) mp.getCount() / intervalSec;
+            log.info("Progress: {} s, {} tps, {} ms latency, {} stddev, {} failed, {} retried, {}",
+                    round(((double) (now - startTime)) / 1_000_000_000d), round(tps), round(mp.getMean()), round(mp.getStddev()),
+                    aggregator.getIntervalErrors(), aggregator.getIntervalRetries(), formatPercentiles(mp));
+            if (conf.getRate() > 0) {
+                MetricProvider lag = new MetricProvider(lagInterval, conf.getPercentiles());
+                log.info("Progress schedule: {} ms average lag, {} ms max lag, {} skipped",
+                        round(lag.getMean()), round(lag.getMax()), aggregator.getIntervalSkipped());
+            }
+            if (mp.getCount() > 0) {
+                log.info("Progress distribution: {}", formatDistribution(mp));
+            }
+            if (writer != null) {
+                IntervalResult res = new IntervalResult();
+                res.setConcurrency(concurrency);
+                res.setElapsedSec(((double) (now - startTime)) / 1_000_000_000d);
+                res.setTps(tps);
+                res.setFailed(aggregator.getIntervalErrors());
+                res.setRetries(aggregator.getIntervalRetries());
+                res.setSkipped(aggregator.getIntervalSkipped());
+                res.setLatency(mp);
+                try {
+                    writer.writeInterval(res);
+                } catch (IOException ex) {
+                    log.error("Error while writing results: {}", ex.getMessage());
+                }
+            }
+            for (int i = 0; i < commandAggregators.size(); i++) {
+                commandAggregators.get(i).takeInterval(commandInterval);
+                MetricProvider cmp = new MetricProvider(commandInterval, conf.getPercentiles());
+                if (cmp.getCount() > 0) {
+                    log.info("Progress command: {} ms average, {}: {}", round(cmp.getMean()), formatPercentiles(cmp), commandNames.get(i));
+                }
             }
-            int totTrans = mp.getCount();
-            double rawTime = mp.getSum();
-            double rawTps = (double) totTrans / (rawTime / 1_000d / (double) conf.getConcurrency());
-            double avgLatency = mp.getMean();
-            double stdDev = mp.getStddev();
-            log.info("Partial results: {} tps, {} ms latency, {} stddev",
-                    BigDecimal.valueOf(rawTps).setScale(3, RoundingMode.HALF_UP),
-                    BigDecimal.valueOf(avgLatency).setScale(3, RoundingMode.HALF_UP),
-                    BigDecimal.valueOf(stdDev).setScale(3, RoundingMode.HALF_UP));
+            lastTime = now;
+            nextTime += intervalNano;
         }
         return ret;
     }
@@ -0,0 +1,62 @@
+package engine;
+
+import engine.strategy.DatabaseSession;
+import lombok.Getter;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// bounded pool of sessions shared by all clients: permits count idle sessions, so that a successful acquire always finds one in the queue,
+// both are lock free as long as a session is available
+public class SessionPool {
+
+    @Getter
+    private final int size;
+    private final Semaphore permits = new Semaphore(0);
+    private final ConcurrentLinkedQueue<DatabaseSession> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger unclaimed;
+
+    public SessionPool(int size) {
+        this.size = size;
+        this.unclaimed = new AtomicInteger(size);
+    }
+
+    // the first clients to claim a connection open it, so that opening the pool is part of the connection phase
+    public boolean claimConnection() {
+        return unclaimed.getAndDecrement() > 0;
+    }
+
+    public void add(DatabaseSession s) {
+        idle.offer(s);
+        permits.release();
+    }
+
+    // waits for an idle session until the given wall clock deadline, null if none became available in time
+    public DatabaseSession borrow(long deadline) throws InterruptedException {
+        long wait = deadline - System.currentTimeMillis();
+        if (wait <= 0 || !permits.tryAcquire(wait, TimeUnit.MILLISECONDS)) {
+            return null;
+        }
+        return idle.poll();
+    }
+
+    public void release(DatabaseSession s) {
+        add(s);
+    }
+
+    // sessions still borrowed are closed by their clients
+    public void close() {
+        DatabaseSession s;
+        while ((s = idle.poll()) != null) {
+            try {
+                s.close();
+            } catch (SQLException ex) {
+                // measurement is over, nothing to do
+            }
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package engine;
+
+import lombok.Getter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TransactionSchedule {
+
+    private final double meanIntervalNano;
+    private final long durationNano;
+    private final AtomicLong next = new AtomicLong();
+    @Getter
+    private long endTime;
+
+    public TransactionSchedule(double rate, long durationNano) {
+        this.meanIntervalNano = 1_000_000_000d / rate;
+        this.durationNano = durationNano;
+    }
+
+    // to be called before releasing the clients, that will see the values through the start barrier
+    public void start(long startTime) {
+        next.set(startTime);
+        endTime = startTime + durationNano;
+    }
+
+    // intended start time of the next transaction, arrivals follow a poisson process as in pgbench
+    public long nextStartTime() {
+        long delta = (long) (-Math.log(1d - ThreadLocalRandom.current().nextDouble()) * meanIntervalNano);
+        return next.getAndAdd(delta);
+    }
+
+}
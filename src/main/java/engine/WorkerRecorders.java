@@ -0,0 +1,33 @@
+package engine;
+
+import engine.utils.ErrorCounter;
+import engine.utils.LatencyRecorder;
+import lombok.Getter;
+
+// everything a client records into: its own recorders of every aggregator, plus the shared error counter
+@Getter
+public class WorkerRecorders {
+
+    private final LatencyRecorder latency;
+    private final LatencyRecorder lag;
+    private final LatencyRecorder connect;
+    private final LatencyRecorder retried;
+    private final LatencyRecorder poolWait;
+    private final LatencyRecorder[] scripts;
+    // null when per command timing is disabled
+    private final LatencyRecorder[] commands;
+    private final ErrorCounter errors;
+
+    public WorkerRecorders(LatencyRecorder latency, LatencyRecorder lag, LatencyRecorder connect, LatencyRecorder retried,
+                           LatencyRecorder poolWait, LatencyRecorder[] scripts, LatencyRecorder[] commands, ErrorCounter errors) {
+        this.latency = latency;
+        this.lag = lag;
+        this.connect = connect;
+        this.retried = retried;
+        this.poolWait = poolWait;
+        this.scripts = scripts;
+        this.commands = commands;
+        this.errors = errors;
+    }
+
+}
@@ -0,0 +1,27 @@
+package engine.distribution;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// same as pgbench random_exponential: the lowest keys are the most frequent, the higher the parameter the steeper the decay
+public class ExponentialGenerator implements KeyGenerator {
+
+    private final long min;
+    private final long size;
+    private final double parameter;
+    private final double cut;
+
+    public ExponentialGenerator(long min, long max, double parameter) {
+        this.min = min;
+        this.size = max - min + 1;
+        this.parameter = parameter;
+        this.cut = Math.exp(-parameter);
+    }
+
+    @Override
+    public long next() {
+        double uniform = 1d - ThreadLocalRandom.current().nextDouble();
+        double rand = -Math.log(cut + (1d - cut) * uniform) / parameter;
+        return min + (long) (size * rand);
+    }
+
+}
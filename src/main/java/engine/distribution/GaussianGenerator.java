@@ -0,0 +1,28 @@
+package engine.distribution;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// same as pgbench random_gaussian: the range spans 2 * threshold standard deviations around its middle
+public class GaussianGenerator implements KeyGenerator {
+
+    private final long min;
+    private final long size;
+    private final double threshold;
+
+    public GaussianGenerator(long min, long max, double threshold) {
+        this.min = min;
+        this.size = max - min + 1;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public long next() {
+        double stddev;
+        do {
+            stddev = ThreadLocalRandom.current().nextGaussian();
+        } while (stddev < -threshold || stddev >= threshold);
+        double rand = (stddev + threshold) / (threshold * 2d);
+        return min + (long) (size * rand);
+    }
+
+}
@@ -0,0 +1,30 @@
+package engine.distribution;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// a hot set made of the lowest keys receives a fixed share of the accesses, the rest is spread on the cold keys
+public class HotspotGenerator implements KeyGenerator {
+
+    private final long min;
+    private final long max;
+    private final long hotMax;
+    private final double hotAccess;
+
+    public HotspotGenerator(long min, long max, double hotKeysPct, double hotAccessPct) {
+        this.min = min;
+        this.max = max;
+        long hotKeys = Math.max(1, Math.round((max - min + 1) * hotKeysPct / 100d));
+        this.hotMax = Math.min(max, min + hotKeys - 1);
+        this.hotAccess = hotAccessPct / 100d;
+    }
+
+    @Override
+    public long next() {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        if (hotMax == max || rnd.nextDouble() < hotAccess) {
+            return rnd.nextLong(min, hotMax + 1);
+        }
+        return rnd.nextLong(hotMax + 1, max + 1);
+    }
+
+}
@@ -0,0 +1,95 @@
+package engine.distribution;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+// shape of the key distribution, as given on the command line, e.g. zipfian:0.99 or hotspot:20:80
+@Getter
+public class KeyDistribution implements Serializable {
+
+    public enum Type {
+        UNIFORM(0, new double[]{}),
+        ZIPFIAN(1, new double[]{0.99}),
+        GAUSSIAN(1, new double[]{2.5}),
+        EXPONENTIAL(1, new double[]{5}),
+        HOTSPOT(2, new double[]{20, 80});
+
+        private final int parameterCount;
+        private final double[] defaults;
+
+        Type(int parameterCount, double[] defaults) {
+            this.parameterCount = parameterCount;
+            this.defaults = defaults;
+        }
+    }
+
+    public static final KeyDistribution UNIFORM = new KeyDistribution(Type.UNIFORM, new double[]{});
+
+    private final Type type;
+    private final double[] parameters;
+
+    public KeyDistribution(Type type, double[] parameters) {
+        if (parameters.length == 0) {
+            parameters = type.defaults;
+        }
+        if (parameters.length != type.parameterCount) {
+            throw new IllegalArgumentException(String.format("%s requires %d parameters", type.toString().toLowerCase(), type.parameterCount));
+        }
+        if (type == Type.ZIPFIAN && parameters[0] <= 0) {
+            throw new IllegalArgumentException("zipfian theta must be positive");
+        }
+        if (type == Type.GAUSSIAN && parameters[0] < 2) {
+            throw new IllegalArgumentException("gaussian threshold must be at least 2");
+        }
+        if (type == Type.EXPONENTIAL && parameters[0] <= 0) {
+            throw new IllegalArgumentException("exponential parameter must be positive");
+        }
+        if (type == Type.HOTSPOT && (parameters[0] <= 0 || parameters[0] > 100 || parameters[1] < 0 || parameters[1] > 100)) {
+            throw new IllegalArgumentException("hotspot key and access shares must be percentages");
+        }
+        this.type = type;
+        this.parameters = parameters;
+    }
+
+    // type name followed by optional colon separated parameters
+    public static KeyDistribution parse(String spec) {
+        String[] tokens = spec.trim().split(":");
+        Type type;
+        try {
+            type = Type.valueOf(tokens[0].trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("unknown distribution " + tokens[0]);
+        }
+        double[] parameters = new double[tokens.length - 1];
+        for (int i = 1; i < tokens.length; i++) {
+            try {
+                parameters[i - 1] = Double.parseDouble(tokens[i].trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("invalid distribution parameter " + tokens[i]);
+            }
+        }
+        return new KeyDistribution(type, parameters);
+    }
+
+    public KeyGenerator newGenerator(long min, long max) {
+        return switch (type) {
+            case UNIFORM -> new UniformGenerator(min, max);
+            case ZIPFIAN -> new ZipfianGenerator(min, max, parameters[0]);
+            case GAUSSIAN -> new GaussianGenerator(min, max, parameters[0]);
+            case EXPONENTIAL -> new ExponentialGenerator(min, max, parameters[0]);
+            case HOTSPOT -> new HotspotGenerator(min, max, parameters[0], parameters[1]);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return type.toString().toLowerCase(Locale.ROOT) + Arrays.stream(parameters)
+                .mapToObj(p -> ":" + (p == Math.rint(p) ? String.valueOf((long) p) : String.valueOf(p)))
+                .collect(Collectors.joining());
+    }
+
+}
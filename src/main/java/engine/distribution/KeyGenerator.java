@@ -0,0 +1,11 @@
+package engine.distribution;
+
+import java.io.Serializable;
+
+// draws keys in a fixed range, implementations keep no mutable state so they can be shared by threads,
+// and sent to agents as part of the configuration
+public interface KeyGenerator extends Serializable {
+
+    long next();
+
+}
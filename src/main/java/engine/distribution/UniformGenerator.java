@@ -0,0 +1,20 @@
+package engine.distribution;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class UniformGenerator implements KeyGenerator {
+
+    private final long min;
+    private final long max;
+
+    public UniformGenerator(long min, long max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    @Override
+    public long next() {
+        return min == max ? min : ThreadLocalRandom.current().nextLong(min, max + 1);
+    }
+
+}
@@ -0,0 +1,70 @@
+package engine.distribution;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// rejection-inversion sampling (Hormann and Derflinger), constant time and no table, so it works on any key range:
+// the key min has rank 1 and is the most frequent, probability of rank k is proportional to 1 / k^theta
+public class ZipfianGenerator implements KeyGenerator {
+
+    private final long min;
+    private final long size;
+    private final double theta;
+    private final double hIntegralX1;
+    private final double hIntegralSize;
+    private final double s;
+
+    public ZipfianGenerator(long min, long max, double theta) {
+        this.min = min;
+        this.size = max - min + 1;
+        this.theta = theta;
+        this.hIntegralX1 = hIntegral(1.5d) - 1d;
+        this.hIntegralSize = hIntegral(size + 0.5d);
+        this.s = 2d - hIntegralInverse(hIntegral(2.5d) - h(2d));
+    }
+
+    @Override
+    public long next() {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        while (true) {
+            double u = hIntegralSize + rnd.nextDouble() * (hIntegralX1 - hIntegralSize);
+            double x = hIntegralInverse(u);
+            long k = (long) (x + 0.5d);
+            if (k < 1) {
+                k = 1;
+            } else if (k > size) {
+                k = size;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5d) - h(k)) {
+                return min + k - 1;
+            }
+        }
+    }
+
+    private double h(double x) {
+        return Math.exp(-theta * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1d - theta) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1d - theta);
+        if (t < -1d) {
+            t = -1d;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log1p(x) / x, accurate also near 0
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1d - x * (0.5d - x * (1d / 3d - 0.25d * x));
+    }
+
+    // expm1(x) / x, accurate also near 0
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1d + x * 0.5d * (1d + x / 3d * (1d + 0.25d * x));
+    }
+
+}
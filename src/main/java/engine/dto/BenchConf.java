@@ -1,13 +1,58 @@
 package engine.dto;
 
+import engine.distribution.KeyDistribution;
+import engine.script.WorkloadScript;
+import engine.strategy.SimulatedLatency;
 import lombok.Data;
 
+import java.io.Serializable;
+import java.util.List;
+
+// sent to agents as is, except for the password that each agent takes from its own command line
 @Data
-public class BenchConf {
+public class BenchConf implements Serializable {
 
     public enum DbEngine {
         ORACLE,
-        POSTGRES
+        POSTGRES,
+        NOOP,
+        SIMULATED
+    }
+
+    public enum LoadMethod {
+        INSERT,
+        COPY,
+        DIRECT,
+        SERVER
+    }
+
+    public enum QueryMode {
+        PREPARED,
+        UNPREPARED
+    }
+
+    public enum Protocol {
+        STATEMENTS,
+        PROCEDURE,
+        PIPELINE
+    }
+
+    public enum ThreadModel {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    public enum Output {
+        NONE,
+        JSON,
+        CSV
+    }
+
+    public enum Isolation {
+        DEFAULT,
+        READ_COMMITTED,
+        REPEATABLE_READ,
+        SERIALIZABLE
     }
 
     private DbEngine engine;
@@ -15,13 +60,44 @@ public class BenchConf {
     private int port;
     private String dbname;
     private String username;
-    private String password;
+    private transient String password;
     private String schema;
     private String tablespace;
     private boolean nologging;
     private int scale = 1;
+    private LoadMethod loadMethod = LoadMethod.INSERT;
+    private int loaders = 1;
+    private int batchSize = 100000;
+    private int commitInterval = 100000;
+    private boolean parallelIndexes;
     private int concurrency = 1;
+    private int connections;
+    private int agents;
+    private int agentPort = 9500;
+    private List<Integer> concurrencySweep;
+    private int warmup;
+    private double steadyState;
+    private int cooldown;
+    private double sweepStopDrop;
     private int time;
     private boolean readOnly;
+    private List<WorkloadScript> scripts = List.of();
+    private KeyDistribution distribution = KeyDistribution.UNIFORM;
+    private boolean truncateHistory;
+    private QueryMode queryMode = QueryMode.PREPARED;
+    private Protocol protocol = Protocol.STATEMENTS;
+    private int reconnect;
+    private int maxTries = 1;
+    private Isolation isolation = Isolation.DEFAULT;
+    private ThreadModel threadModel = ThreadModel.PLATFORM;
+    private int progress = 60;
+    private boolean reportPerCommand;
+    private Output output = Output.NONE;
+    private String outputFile;
+    private double rate;
+    private int latencyLimit;
+    private List<Double> percentiles = List.of(50d, 90d, 99d, 99.9d);
+    private SimulatedLatency simulatedLatency = SimulatedLatency.DEFAULT;
+    private boolean simulatedLocks;
 
 }
@@ -1,5 +1,6 @@
 package engine.dto;
 
+import engine.utils.MetricProvider;
 import lombok.Data;
 
 @Data
@@ -12,5 +13,6 @@ public class BenchResult {
 
     private ExecStatus status;
     private Exception ex;
+    private MetricProvider latency;
 
 }
@@ -0,0 +1,17 @@
+package engine.dto;
+
+import engine.utils.MetricProvider;
+import lombok.Data;
+
+@Data
+public class IntervalResult {
+
+    private int concurrency;
+    private double elapsedSec;
+    private double tps;
+    private long failed;
+    private long retries;
+    private long skipped;
+    private MetricProvider latency;
+
+}
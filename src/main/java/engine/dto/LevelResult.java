@@ -0,0 +1,35 @@
+package engine.dto;
+
+import engine.utils.MetricProvider;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class LevelResult {
+
+    private int concurrency;
+    private long elapsedNano;
+    private long warmupNano;
+    private double tps;
+    private double rawTps;
+    private double roundTrips;
+    private long failed;
+    private long retries;
+    private long skipped;
+    private MetricProvider latency;
+    private MetricProvider retriedLatency;
+    private MetricProvider lag;
+    private MetricProvider connect;
+    // connections opened again during the measurement, null without reconnections
+    private MetricProvider reconnect;
+    // null when clients do not share a connection pool
+    private MetricProvider poolWait;
+    private Map<String, Long> errors;
+    // keyed by script name or command text, in execution order
+    private Map<String, MetricProvider> scripts;
+    private Map<String, MetricProvider> commands;
+    private List<BenchResult> clients;
+
+}
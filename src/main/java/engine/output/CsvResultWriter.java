@@ -0,0 +1,118 @@
+package engine.output;
+
+import engine.dto.BenchConf;
+import engine.dto.IntervalResult;
+import engine.dto.LevelResult;
+import engine.utils.MetricProvider;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import static engine.utils.CommonUtils.round;
+
+// one row per progress interval, then per level the total, scripts, commands, clients and errors, distinguished by
+// the type column; client metadata and configuration go first as comment lines
+public class CsvResultWriter implements ResultWriter {
+
+    private final BufferedWriter out;
+    private final List<Double> percentiles;
+
+    public CsvResultWriter(Path file, List<Double> percentiles) throws IOException {
+        this.out = Files.newBufferedWriter(file);
+        this.percentiles = percentiles;
+    }
+
+    @Override
+    public synchronized void writeHeader(BenchConf conf) throws IOException {
+        for (Map.Entry<String, Object> e : RunMetadata.describeClient().entrySet()) {
+            out.write("# client." + e.getKey() + ": " + e.getValue() + "\n");
+        }
+        for (Map.Entry<String, Object> e : RunMetadata.describeConf(conf).entrySet()) {
+            out.write("# conf." + e.getKey() + ": " + e.getValue() + "\n");
+        }
+        StringJoiner header = new StringJoiner(",");
+        header.add("type").add("concurrency").add("name").add("elapsed_sec").add("count").add("tps").add("failed").add("retries").add("skipped")
+                .add("mean_ms").add("stddev_ms").add("min_ms");
+        for (double p : percentiles) {
+            header.add("p" + BigDecimal.valueOf(p).stripTrailingZeros().toPlainString() + "_ms");
+        }
+        header.add("max_ms");
+        out.write(header + "\n");
+        out.flush();
+    }
+
+    @Override
+    public synchronized void writeInterval(IntervalResult interval) throws IOException {
+        writeRow("interval", interval.getConcurrency(), "", interval.getElapsedSec(), interval.getTps(),
+                interval.getFailed(), interval.getRetries(), interval.getSkipped(), interval.getLatency());
+        out.flush();
+    }
+
+    @Override
+    public synchronized void writeLevel(LevelResult level) throws IOException {
+        double elapsedSec = level.getElapsedNano() / 1_000_000_000d;
+        writeRow("total", level.getConcurrency(), "", elapsedSec, level.getTps(), level.getFailed(), level.getRetries(), level.getSkipped(), level.getLatency());
+        writeRow("retried", level.getConcurrency(), "", elapsedSec, Double.NaN, 0, 0, 0, level.getRetriedLatency());
+        if (level.getLag() != null) {
+            writeRow("schedule_lag", level.getConcurrency(), "", elapsedSec, Double.NaN, 0, 0, 0, level.getLag());
+        }
+        writeRow("connect", level.getConcurrency(), "", elapsedSec, Double.NaN, 0, 0, 0, level.getConnect());
+        if (level.getReconnect() != null) {
+            writeRow("reconnect", level.getConcurrency(), "", elapsedSec, Double.NaN, 0, 0, 0, level.getReconnect());
+        }
+        if (level.getPoolWait() != null) {
+            writeRow("pool_wait", level.getConcurrency(), "", elapsedSec, Double.NaN, 0, 0, 0, level.getPoolWait());
+        }
+        for (Map.Entry<String, MetricProvider> e : level.getScripts().entrySet()) {
+            writeRow("script", level.getConcurrency(), e.getKey(), elapsedSec, e.getValue().getCount() / elapsedSec, 0, 0, 0, e.getValue());
+        }
+        for (Map.Entry<String, MetricProvider> e : level.getCommands().entrySet()) {
+            writeRow("command", level.getConcurrency(), e.getKey(), elapsedSec, Double.NaN, 0, 0, 0, e.getValue());
+        }
+        for (int i = 0; i < level.getClients().size(); i++) {
+            MetricProvider mp = level.getClients().get(i).getLatency();
+            writeRow("client", level.getConcurrency(), "client " + (i + 1) + " " + level.getClients().get(i).getStatus(), elapsedSec,
+                    mp.getCount() / elapsedSec, 0, 0, 0, mp);
+        }
+        for (Map.Entry<String, Long> e : level.getErrors().entrySet()) {
+            StringJoiner row = new StringJoiner(",");
+            row.add("error").add(String.valueOf(level.getConcurrency())).add(quote(e.getKey())).add(round(elapsedSec).toPlainString())
+                    .add(String.valueOf(e.getValue()));
+            out.write(row + "\n");
+        }
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private void writeRow(String type, int concurrency, String name, double elapsedSec, double tps, long failed, long retries, long skipped,
+                          MetricProvider mp) throws IOException {
+        StringJoiner row = new StringJoiner(",");
+        row.add(type).add(String.valueOf(concurrency)).add(quote(name)).add(round(elapsedSec).toPlainString()).add(String.valueOf(mp.getCount()))
+                .add(Double.isNaN(tps) ? "" : round(tps).toPlainString())
+                .add(String.valueOf(failed)).add(String.valueOf(retries)).add(String.valueOf(skipped))
+                .add(round(mp.getMean()).toPlainString()).add(round(mp.getStddev()).toPlainString()).add(round(mp.getMin()).toPlainString());
+        for (double v : mp.getPercentileValues()) {
+            row.add(round(v).toPlainString());
+        }
+        row.add(round(mp.getMax()).toPlainString());
+        out.write(row + "\n");
+    }
+
+    private static String quote(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+}
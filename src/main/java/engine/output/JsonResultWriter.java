@@ -0,0 +1,207 @@
+package engine.output;
+
+import engine.dto.BenchConf;
+import engine.dto.BenchResult;
+import engine.dto.IntervalResult;
+import engine.dto.LevelResult;
+import engine.utils.MetricProvider;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static engine.utils.CommonUtils.round;
+import static engine.utils.MetricProvider.DISTRIBUTION_BOUNDS;
+
+// a single JSON document: client metadata, configuration and one entry per concurrency level holding
+// its progress intervals and final result, each interval is written and flushed as soon as it is available
+public class JsonResultWriter implements ResultWriter {
+
+    private final BufferedWriter out;
+    private final JsonWriter json;
+    private final List<Double> percentiles;
+    private boolean levelOpen;
+
+    public JsonResultWriter(Path file, List<Double> percentiles) throws IOException {
+        this.out = Files.newBufferedWriter(file);
+        this.json = new JsonWriter(out);
+        this.percentiles = percentiles;
+    }
+
+    @Override
+    public synchronized void writeHeader(BenchConf conf) throws IOException {
+        json.beginObject();
+        json.name("client");
+        writeMap(RunMetadata.describeClient());
+        json.name("conf");
+        writeMap(RunMetadata.describeConf(conf));
+        json.name("levels").beginArray().newLine();
+        json.flush();
+    }
+
+    @Override
+    public synchronized void writeInterval(IntervalResult interval) throws IOException {
+        openLevel(interval.getConcurrency());
+        json.beginObject();
+        json.name("elapsedSec").value(round(interval.getElapsedSec()).doubleValue());
+        json.name("tps").value(round(interval.getTps()).doubleValue());
+        json.name("failed").value(interval.getFailed());
+        json.name("retries").value(interval.getRetries());
+        json.name("skipped").value(interval.getSkipped());
+        json.name("latency");
+        writeMetrics(interval.getLatency(), false);
+        json.endObject().newLine();
+        json.flush();
+    }
+
+    @Override
+    public synchronized void writeLevel(LevelResult level) throws IOException {
+        openLevel(level.getConcurrency());
+        json.endArray();
+        json.name("result").beginObject();
+        json.name("elapsedSec").value(round(level.getElapsedNano() / 1_000_000_000d).doubleValue());
+        json.name("warmupSec").value(round(level.getWarmupNano() / 1_000_000_000d).doubleValue());
+        json.name("transactions").value(level.getLatency().getCount());
+        json.name("tps").value(round(level.getTps()).doubleValue());
+        json.name("rawTps").value(round(level.getRawTps()).doubleValue());
+        json.name("roundTrips").value(round(level.getRoundTrips()).doubleValue());
+        json.name("failed").value(level.getFailed());
+        json.name("retries").value(level.getRetries());
+        json.name("skipped").value(level.getSkipped());
+        json.name("latency");
+        writeMetrics(level.getLatency(), true);
+        json.name("retriedLatency");
+        writeMetrics(level.getRetriedLatency(), false);
+        if (level.getLag() != null) {
+            json.name("scheduleLag");
+            writeMetrics(level.getLag(), false);
+        }
+        json.name("connect");
+        writeMetrics(level.getConnect(), false);
+        if (level.getReconnect() != null) {
+            json.name("reconnect");
+            writeMetrics(level.getReconnect(), false);
+        }
+        if (level.getPoolWait() != null) {
+            json.name("poolWait");
+            writeMetrics(level.getPoolWait(), false);
+        }
+        json.name("errors").beginObject();
+        for (Map.Entry<String, Long> e : level.getErrors().entrySet()) {
+            json.name(e.getKey()).value(e.getValue());
+        }
+        json.endObject();
+        json.name("scripts");
+        writeNamedMetrics(level.getScripts());
+        json.name("commands");
+        writeNamedMetrics(level.getCommands());
+        json.name("clients").beginArray();
+        for (int i = 0; i < level.getClients().size(); i++) {
+            BenchResult res = level.getClients().get(i);
+            json.beginObject();
+            json.name("client").value(i + 1);
+            json.name("status").value(res.getStatus().toString());
+            json.name("error").value(res.getEx() != null ? res.getEx().getMessage() : null);
+            json.name("latency");
+            writeMetrics(res.getLatency(), false);
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        json.endObject().newLine();
+        json.flush();
+        levelOpen = false;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (levelOpen) {
+            json.endArray().endObject();
+        }
+        json.endArray().endObject().newLine();
+        out.close();
+    }
+
+    private void openLevel(int concurrency) throws IOException {
+        if (levelOpen) {
+            return;
+        }
+        json.beginObject();
+        json.name("concurrency").value(concurrency);
+        json.name("intervals").beginArray().newLine();
+        levelOpen = true;
+    }
+
+    private void writeNamedMetrics(Map<String, MetricProvider> metrics) throws IOException {
+        json.beginArray();
+        for (Map.Entry<String, MetricProvider> e : metrics.entrySet()) {
+            json.beginObject();
+            json.name("name").value(e.getKey());
+            json.name("latency");
+            writeMetrics(e.getValue(), false);
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    // latency figures in milliseconds
+    private void writeMetrics(MetricProvider mp, boolean withDistribution) throws IOException {
+        json.beginObject();
+        json.name("count").value(mp.getCount());
+        json.name("meanMs").value(round(mp.getMean()).doubleValue());
+        json.name("stddevMs").value(round(mp.getStddev()).doubleValue());
+        json.name("minMs").value(round(mp.getMin()).doubleValue());
+        json.name("maxMs").value(round(mp.getMax()).doubleValue());
+        json.name("percentilesMs").beginObject();
+        for (int i = 0; i < percentiles.size(); i++) {
+            json.name("p" + BigDecimal.valueOf(percentiles.get(i)).stripTrailingZeros().toPlainString()).value(round(mp.getPercentileValues()[i]).doubleValue());
+        }
+        json.endObject();
+        if (withDistribution) {
+            json.name("distribution").beginArray();
+            for (int i = 0; i < mp.getDistribution().length; i++) {
+                json.beginObject();
+                json.name("fromMs").value(i == 0 ? 0d : DISTRIBUTION_BOUNDS[i - 1]);
+                if (i < DISTRIBUTION_BOUNDS.length) {
+                    json.name("toMs").value(DISTRIBUTION_BOUNDS[i]);
+                }
+                json.name("count").value(mp.getDistribution()[i]);
+                json.endObject();
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    private void writeMap(Map<String, Object> map) throws IOException {
+        json.beginObject();
+        for (Map.Entry<String, Object> e : map.entrySet()) {
+            json.name(e.getKey());
+            writeValue(e.getValue());
+        }
+        json.endObject();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value instanceof List<?> list) {
+            json.beginArray();
+            for (Object v : list) {
+                writeValue(v);
+            }
+            json.endArray();
+        } else if (value instanceof Double || value instanceof Float) {
+            json.value(((Number) value).doubleValue());
+        } else if (value instanceof Number n) {
+            json.value(n.longValue());
+        } else if (value instanceof Boolean b) {
+            json.value(b);
+        } else {
+            json.value(value != null ? value.toString() : null);
+        }
+    }
+
+}
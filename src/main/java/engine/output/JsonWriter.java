@@ -0,0 +1,129 @@
+package engine.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+// minimal streaming JSON writer, just enough to emit results without pulling in a library
+public class JsonWriter {
+
+    private final Writer out;
+    // for each open object or array, whether it already holds an element
+    private final Deque<Boolean> nonEmpty = new ArrayDeque<>();
+    private boolean afterName;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        separate();
+        out.write('{');
+        nonEmpty.push(false);
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        nonEmpty.pop();
+        out.write('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        separate();
+        out.write('[');
+        nonEmpty.push(false);
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        nonEmpty.pop();
+        out.write(']');
+        return this;
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        writeString(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        separate();
+        if (value == null) {
+            out.write("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        separate();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    // non finite values have no JSON representation
+    public JsonWriter value(double value) throws IOException {
+        separate();
+        out.write(Double.isFinite(value) ? Double.toString(value) : "null");
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        separate();
+        out.write(Boolean.toString(value));
+        return this;
+    }
+
+    public JsonWriter newLine() throws IOException {
+        out.write('\n');
+        return this;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (!nonEmpty.isEmpty()) {
+            if (nonEmpty.peek()) {
+                out.write(',');
+            } else {
+                nonEmpty.pop();
+                nonEmpty.push(true);
+            }
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (ch < 0x20) {
+                        out.write(String.format("\\u%04x", (int) ch));
+                    } else {
+                        out.write(ch);
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+
+}
@@ -0,0 +1,31 @@
+package engine.output;
+
+import engine.dto.BenchConf;
+import engine.dto.IntervalResult;
+import engine.dto.LevelResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// structured results, written as they are produced so that long runs keep nothing in memory
+public interface ResultWriter extends AutoCloseable {
+
+    void writeHeader(BenchConf conf) throws IOException;
+
+    void writeInterval(IntervalResult interval) throws IOException;
+
+    void writeLevel(LevelResult level) throws IOException;
+
+    @Override
+    void close() throws IOException;
+
+    static ResultWriter open(BenchConf conf) throws IOException {
+        Path file = Path.of(conf.getOutputFile());
+        return switch (conf.getOutput()) {
+            case JSON -> new JsonResultWriter(file, conf.getPercentiles());
+            case CSV -> new CsvResultWriter(file, conf.getPercentiles());
+            case NONE -> throw new AssertionError("Unreachable code branch");
+        };
+    }
+
+}
@@ -0,0 +1,78 @@
+package engine.output;
+
+import engine.dto.BenchConf;
+import engine.script.WorkloadScript;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// client side facts that make results comparable across runs, values are strings, numbers, booleans or lists of them
+public class RunMetadata {
+
+    public static Map<String, Object> describeClient() {
+        Map<String, Object> ret = new LinkedHashMap<>();
+        ret.put("timestamp", OffsetDateTime.now().toString());
+        ret.put("hostname", getHostname());
+        ret.put("osName", System.getProperty("os.name"));
+        ret.put("osVersion", System.getProperty("os.version"));
+        ret.put("osArch", System.getProperty("os.arch"));
+        ret.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        ret.put("javaVersion", System.getProperty("java.version"));
+        ret.put("javaVendor", System.getProperty("java.vendor"));
+        ret.put("jvmName", System.getProperty("java.vm.name"));
+        ret.put("jvmArguments", ManagementFactory.getRuntimeMXBean().getInputArguments());
+        ret.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+        ret.put("garbageCollectors", ManagementFactory.getGarbageCollectorMXBeans().stream().map(GarbageCollectorMXBean::getName).toList());
+        return ret;
+    }
+
+    // every configuration field but the password
+    public static Map<String, Object> describeConf(BenchConf conf) {
+        Map<String, Object> ret = new LinkedHashMap<>();
+        for (Field f : BenchConf.class.getDeclaredFields()) {
+            if (Modifier.isStatic(f.getModifiers()) || f.getName().equals("password")) {
+                continue;
+            }
+            try {
+                f.setAccessible(true);
+                ret.put(f.getName(), toValue(f.get(conf)));
+            } catch (IllegalAccessException ex) {
+                throw new AssertionError("Unreachable code branch");
+            }
+        }
+        return ret;
+    }
+
+    private static Object toValue(Object value) {
+        if (value == null || value instanceof Number || value instanceof Boolean || value instanceof String) {
+            return value;
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().map(RunMetadata::toValue).toList();
+        }
+        if (value instanceof WorkloadScript script) {
+            return script.getName() + "@" + script.getWeight();
+        }
+        if (value instanceof Enum<?> e) {
+            return e.toString().toLowerCase();
+        }
+        return value.toString();
+    }
+
+    private static String getHostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException ex) {
+            return "unknown";
+        }
+    }
+
+}
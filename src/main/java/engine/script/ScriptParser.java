@@ -0,0 +1,327 @@
+package engine.script;
+
+import engine.distribution.KeyDistribution;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// parses pgbench-like scripts: one SQL statement per line or spanning lines up to a trailing semicolon,
+// :variables bound as parameters, "\set name random(min, max)" or "\set name expression" to define them,
+// random_zipfian(min, max, theta), random_gaussian(min, max, threshold), random_exponential(min, max, parameter)
+// and random_hotspot(min, max, keys %, accesses %) draw skewed values
+public class ScriptParser {
+
+    private static final Pattern SET_PATTERN = Pattern.compile("\\\\set\\s+([a-zA-Z_][a-zA-Z0-9_]*)\\s+(.+)");
+    private static final Pattern RANDOM_PATTERN = Pattern.compile("random(_[a-z]+)?\\s*\\((.*)\\)");
+    // each script runs as a single transaction committed at the end, explicit transaction control is skipped
+    private static final List<String> TRANSACTION_STATEMENTS = List.of("BEGIN", "START TRANSACTION", "END", "COMMIT");
+
+    private final String name;
+    private final List<ScriptVariable> variables = new ArrayList<>();
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final List<ScriptStatement> statements = new ArrayList<>();
+    private int lineNumber;
+
+    private ScriptParser(String name, int scale) {
+        this.name = name;
+        addVariable(new ScriptVariable("scale", scale));
+    }
+
+    // the name identifies the script in reports and error messages
+    public static WorkloadScript parse(Path file, String name, int weight, int scale) throws IOException {
+        ScriptParser parser = new ScriptParser(name, scale);
+        return parser.parse(Files.readAllLines(file), weight);
+    }
+
+    private WorkloadScript parse(List<String> lines, int weight) {
+        StringBuilder sql = new StringBuilder();
+        int sqlLine = 0;
+        for (String line : lines) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            if (trimmed.startsWith("\\")) {
+                if (!sql.isEmpty()) {
+                    throw error("meta command inside an unterminated SQL statement");
+                }
+                parseMetaCommand(trimmed);
+                continue;
+            }
+            if (sql.isEmpty()) {
+                sqlLine = lineNumber;
+            } else {
+                sql.append('\n');
+            }
+            sql.append(trimmed);
+            if (trimmed.endsWith(";")) {
+                sql.setLength(sql.length() - 1);
+                addStatement(sql.toString().trim(), sqlLine);
+                sql.setLength(0);
+            }
+        }
+        if (!sql.isEmpty()) {
+            addStatement(sql.toString().trim(), sqlLine);
+        }
+        if (statements.isEmpty()) {
+            throw new IllegalArgumentException(name + ": no SQL statement found");
+        }
+        return new WorkloadScript(name, weight, List.copyOf(variables), List.copyOf(statements));
+    }
+
+    private void parseMetaCommand(String line) {
+        Matcher m = SET_PATTERN.matcher(line);
+        if (!m.matches()) {
+            throw error("unsupported meta command, only \\set is allowed");
+        }
+        String var = m.group(1);
+        if (slots.containsKey(var)) {
+            throw error("variable " + var + " already defined");
+        }
+        String expr = m.group(2).trim();
+        Matcher r = RANDOM_PATTERN.matcher(expr);
+        if (r.matches()) {
+            String function = "random" + (r.group(1) != null ? r.group(1) : "");
+            KeyDistribution.Type type;
+            try {
+                type = r.group(1) != null ? KeyDistribution.Type.valueOf(r.group(1).substring(1).toUpperCase(Locale.ROOT)) : KeyDistribution.Type.UNIFORM;
+            } catch (IllegalArgumentException ex) {
+                throw error("unknown function " + function);
+            }
+            String[] args = splitArguments(r.group(2));
+            if (args.length < 2) {
+                throw error(function + "() requires at least two arguments");
+            }
+            long min = evaluate(args[0]);
+            long max = evaluate(args[1]);
+            if (min > max) {
+                throw error(function + "() lower bound greater than upper bound");
+            }
+            // distribution parameters are plain numbers
+            double[] parameters = new double[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                try {
+                    parameters[i - 2] = Double.parseDouble(args[i].trim());
+                } catch (NumberFormatException ex) {
+                    throw error("invalid parameter " + args[i].trim() + " of " + function + "()");
+                }
+            }
+            if (type != KeyDistribution.Type.UNIFORM && parameters.length == 0) {
+                throw error(function + "() requires its distribution parameters");
+            }
+            try {
+                addVariable(new ScriptVariable(var, min, max, new KeyDistribution(type, parameters).newGenerator(min, max)));
+            } catch (IllegalArgumentException ex) {
+                throw error(ex.getMessage());
+            }
+        } else {
+            addVariable(new ScriptVariable(var, evaluate(expr)));
+        }
+    }
+
+    // splits on commas outside parentheses
+    private String[] splitArguments(String args) {
+        List<String> ret = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < args.length(); i++) {
+            char ch = args.charAt(i);
+            if (ch == '(') {
+                depth++;
+            } else if (ch == ')') {
+                depth--;
+            } else if (ch == ',' && depth == 0) {
+                ret.add(args.substring(start, i));
+                start = i + 1;
+            }
+        }
+        ret.add(args.substring(start));
+        return ret.toArray(new String[0]);
+    }
+
+    private void addVariable(ScriptVariable var) {
+        slots.put(var.getName(), variables.size());
+        variables.add(var);
+    }
+
+    // replaces :variables outside quoted literals with positional parameters, leaving postgres :: casts alone
+    private void addStatement(String sql, int line) {
+        String upper = sql.toUpperCase(Locale.ROOT);
+        if (TRANSACTION_STATEMENTS.contains(upper)) {
+            return;
+        }
+        StringBuilder ret = new StringBuilder(sql.length());
+        List<Integer> params = new ArrayList<>();
+        char quote = 0;
+        int i = 0;
+        while (i < sql.length()) {
+            char ch = sql.charAt(i);
+            if (quote != 0) {
+                if (ch == quote) {
+                    quote = 0;
+                }
+            } else if (ch == '\'' || ch == '"') {
+                quote = ch;
+            } else if (ch == ':' && i + 1 < sql.length() && sql.charAt(i + 1) == ':') {
+                ret.append("::");
+                i += 2;
+                continue;
+            } else if (ch == ':' && i + 1 < sql.length() && isIdentifierStart(sql.charAt(i + 1))) {
+                int end = i + 1;
+                while (end < sql.length() && isIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+                String var = sql.substring(i + 1, end);
+                Integer slot = slots.get(var);
+                if (slot == null) {
+                    throw new IllegalArgumentException(name + ":" + line + ": undefined variable :" + var);
+                }
+                params.add(slot);
+                ret.append('?');
+                i = end;
+                continue;
+            }
+            ret.append(ch);
+            i++;
+        }
+        statements.add(new ScriptStatement(ret.toString(), params.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    private static boolean isIdentifierStart(char ch) {
+        return Character.isLetter(ch) || ch == '_';
+    }
+
+    private static boolean isIdentifierPart(char ch) {
+        return Character.isLetterOrDigit(ch) || ch == '_';
+    }
+
+    // integer arithmetic on literals and constant variables, evaluated once here so that nothing is left for run time
+    private long evaluate(String expr) {
+        ExpressionReader reader = new ExpressionReader(expr);
+        long ret;
+        try {
+            ret = reader.readSum();
+        } catch (ArithmeticException ex) {
+            throw error("overflow in expression: " + expr);
+        }
+        reader.skipBlanks();
+        if (!reader.atEnd()) {
+            throw error("invalid expression: " + expr);
+        }
+        return ret;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(name + ":" + lineNumber + ": " + message);
+    }
+
+    private class ExpressionReader {
+
+        private final String expr;
+        private int pos;
+
+        private ExpressionReader(String expr) {
+            this.expr = expr;
+        }
+
+        private long readSum() {
+            long ret = readProduct();
+            while (true) {
+                skipBlanks();
+                if (accept('+')) {
+                    ret = Math.addExact(ret, readProduct());
+                } else if (accept('-')) {
+                    ret = Math.subtractExact(ret, readProduct());
+                } else {
+                    return ret;
+                }
+            }
+        }
+
+        private long readProduct() {
+            long ret = readFactor();
+            while (true) {
+                skipBlanks();
+                if (accept('*')) {
+                    ret = Math.multiplyExact(ret, readFactor());
+                } else if (accept('/')) {
+                    long divisor = readFactor();
+                    if (divisor == 0) {
+                        throw error("division by zero in expression: " + expr);
+                    }
+                    ret = ret / divisor;
+                } else {
+                    return ret;
+                }
+            }
+        }
+
+        private long readFactor() {
+            skipBlanks();
+            if (accept('-')) {
+                return Math.negateExact(readFactor());
+            }
+            if (accept('(')) {
+                long ret = readSum();
+                skipBlanks();
+                if (!accept(')')) {
+                    throw error("missing closing parenthesis in expression: " + expr);
+                }
+                return ret;
+            }
+            if (accept(':')) {
+                int start = pos;
+                while (!atEnd() && isIdentifierPart(expr.charAt(pos))) {
+                    pos++;
+                }
+                String var = expr.substring(start, pos);
+                Integer slot = slots.get(var);
+                if (slot == null || !variables.get(slot).isConstant()) {
+                    throw error("expressions can only use constant variables defined earlier, not :" + var);
+                }
+                return variables.get(slot).getMin();
+            }
+            int start = pos;
+            while (!atEnd() && Character.isDigit(expr.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("invalid expression: " + expr);
+            }
+            try {
+                return Long.parseLong(expr.substring(start, pos));
+            } catch (NumberFormatException ex) {
+                throw error("number out of range in expression: " + expr);
+            }
+        }
+
+        private boolean accept(char ch) {
+            if (!atEnd() && expr.charAt(pos) == ch) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipBlanks() {
+            while (!atEnd() && Character.isWhitespace(expr.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean atEnd() {
+            return pos >= expr.length();
+        }
+
+    }
+
+}
@@ -0,0 +1,20 @@
+package engine.script;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+
+@Getter
+public class ScriptStatement implements Serializable {
+
+    // statement text with every :variable replaced by a positional parameter
+    private final String sql;
+    // for each positional parameter, the index of the variable bound to it
+    private final int[] params;
+
+    public ScriptStatement(String sql, int[] params) {
+        this.sql = sql;
+        this.params = params;
+    }
+
+}
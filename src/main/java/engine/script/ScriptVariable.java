@@ -0,0 +1,36 @@
+package engine.script;
+
+import engine.distribution.KeyGenerator;
+import engine.distribution.UniformGenerator;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+@Getter
+public class ScriptVariable implements Serializable {
+
+    private final String name;
+    private final long min;
+    private final long max;
+    private final KeyGenerator generator;
+
+    public ScriptVariable(String name, long min, long max, KeyGenerator generator) {
+        this.name = name;
+        this.min = min;
+        this.max = max;
+        this.generator = generator;
+    }
+
+    public ScriptVariable(String name, long value) {
+        this(name, value, value, new UniformGenerator(value, value));
+    }
+
+    public boolean isConstant() {
+        return min == max;
+    }
+
+    public long next() {
+        return generator.next();
+    }
+
+}
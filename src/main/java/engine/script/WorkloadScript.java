@@ -0,0 +1,30 @@
+package engine.script;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Getter
+public class WorkloadScript implements Serializable {
+
+    private final String name;
+    private final int weight;
+    private final List<ScriptVariable> variables;
+    private final List<ScriptStatement> statements;
+
+    public WorkloadScript(String name, int weight, List<ScriptVariable> variables, List<ScriptStatement> statements) {
+        this.name = name;
+        this.weight = weight;
+        this.variables = variables;
+        this.statements = statements;
+    }
+
+    // draws a new value for every variable, values are indexed as the variables list
+    public void generate(long[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = variables.get(i).next();
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package engine.strategy;
+
+import engine.utils.LatencyRecorder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+public class DatabaseSession implements AutoCloseable {
+
+    @Getter
+    private final Connection connection;
+    private final String[] sqls;
+    private final PreparedStatement[] statements;
+    private final boolean reuse;
+    // one recorder per command when per command timing is enabled, null otherwise,
+    // a pooled session is switched to the recorders of the client borrowing it
+    @Setter
+    private LatencyRecorder[] commandRecorders;
+
+    // with reuse enabled statements are prepared once here and kept open for the whole session,
+    // otherwise every transaction prepares and closes them, as plain JDBC code usually does
+    public DatabaseSession(Connection connection, String[] sqls, boolean reuse, LatencyRecorder[] commandRecorders) throws SQLException {
+        this.connection = connection;
+        this.sqls = sqls;
+        this.statements = new PreparedStatement[sqls.length];
+        this.reuse = reuse;
+        this.commandRecorders = commandRecorders;
+        if (reuse) {
+            try {
+                for (int i = 0; i < sqls.length; i++) {
+                    if (sqls[i] != null) {
+                        statements[i] = connection.prepareStatement(sqls[i]);
+                    }
+                }
+            } catch (SQLException ex) {
+                close();
+                throw ex;
+            }
+        }
+    }
+
+    public PreparedStatement getStatement(int idx) throws SQLException {
+        return reuse ? statements[idx] : connection.prepareStatement(sqls[idx]);
+    }
+
+    public void releaseStatement(PreparedStatement stmt) throws SQLException {
+        if (!reuse) {
+            stmt.close();
+        }
+    }
+
+    // start and end of a timed command, costing nothing more than a branch when timing is disabled
+    public long startCommand() {
+        return commandRecorders != null ? System.nanoTime() : 0;
+    }
+
+    public void endCommand(int idx, long startTime) {
+        if (commandRecorders != null) {
+            commandRecorders[idx].record(System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            for (PreparedStatement stmt : statements) {
+                if (stmt != null) {
+                    stmt.close();
+                }
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+}
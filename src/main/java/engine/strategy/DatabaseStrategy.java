@@ -1,17 +1,33 @@
 package engine.strategy;
 
 import engine.dto.BenchConf;
+import engine.script.ScriptStatement;
+import engine.script.WorkloadScript;
+import engine.utils.LatencyRecorder;
 import lombok.extern.log4j.Log4j2;
 
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static engine.dto.BenchConf.LoadMethod.SERVER;
+import static engine.dto.BenchConf.Protocol.PROCEDURE;
+import static engine.dto.BenchConf.Protocol.STATEMENTS;
+import static engine.dto.BenchConf.QueryMode.PREPARED;
 import static engine.utils.CommonUtils.smartElapsed;
 
 @Log4j2
 public abstract class DatabaseStrategy {
 
+    protected static final int PROGRESS_INTERVAL_SEC = 10;
+
     protected static final List<String> tables = Arrays.asList("bench_branches", "bench_tellers", "bench_accounts", "bench_history");
 
     protected static final String INSERT_BRANCHES_STMT = "INSERT INTO %sbench_branches VALUES (?, ?)";
@@ -28,14 +44,44 @@ public abstract class DatabaseStrategy {
     protected static final String UPDATE_BRANCHES_STMT = "UPDATE %sbench_branches SET bbalance = bbalance + ? WHERE bid = ?";
     protected static final String INSERT_HISTORY_STMT = "INSERT INTO %sbench_history (tid, bid, aid, delta, mtime) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)";
 
+    protected static final String COUNT_BRANCHES_STMT = "SELECT COUNT(*) FROM %sbench_branches";
+    protected static final String COUNT_TELLERS_STMT = "SELECT COUNT(*) FROM %sbench_tellers";
+    protected static final String MAX_AID_ACCOUNTS_STMT = "SELECT MAX(aid) FROM %sbench_accounts";
+    protected static final String COUNT_HISTORY_STMT = "SELECT COUNT(*) FROM %sbench_history";
+    protected static final String TRUNCATE_HISTORY_STMT = "TRUNCATE TABLE %sbench_history";
+
     protected static final String SELECT_BRANCHES_STMT = "SELECT * FROM %sbench_branches WHERE bid = ?";
     protected static final String SELECT_TELLERS_STMT = "SELECT * FROM %sbench_tellers WHERE tid = ?";
     protected static final String SELECT_ACCOUNTS_STMT = "SELECT * FROM %sbench_accounts WHERE aid = ?";
 
+    // positions of the workload statements inside a session
+    protected static final int UPDATE_ACCOUNTS = 0;
+    protected static final int SELECT_ABALANCE_ACCOUNTS = 1;
+    protected static final int UPDATE_TELLERS = 2;
+    protected static final int UPDATE_BRANCHES = 3;
+    protected static final int INSERT_HISTORY = 4;
+    protected static final int SELECT_BRANCHES = 5;
+    protected static final int SELECT_TELLERS = 6;
+    protected static final int SELECT_ACCOUNTS = 7;
+    protected static final int WORKLOAD_STMT_COUNT = 8;
+    // commit of the built-in transaction, timed as a command of its own
+    protected static final int COMMIT = WORKLOAD_STMT_COUNT;
+    // with procedure and pipeline protocols the whole transaction is a single statement, and a single command
+    protected static final int SINGLE_CALL = 0;
+
     protected final BenchConf conf;
+    // position of the first statement of each custom script inside a session
+    private final int[] scriptOffsets;
+    // position of the commit of the first script among commands, the others follow
+    private final int scriptCommitOffset;
 
     public DatabaseStrategy(BenchConf conf) throws ClassNotFoundException {
         this.conf = conf;
+        this.scriptOffsets = new int[conf.getScripts().size()];
+        for (int i = 1; i < scriptOffsets.length; i++) {
+            scriptOffsets[i] = scriptOffsets[i - 1] + conf.getScripts().get(i - 1).getStatements().size();
+        }
+        this.scriptCommitOffset = conf.getScripts().stream().mapToInt(script -> script.getStatements().size()).sum();
     }
 
     public abstract Connection doConnect() throws SQLException;
@@ -44,10 +90,36 @@ public abstract class DatabaseStrategy {
 
     public abstract void createTables(Connection c) throws SQLException;
 
+    // stored procedure running the built-in write transaction, always installed so that any later run can use it
+    public abstract void createProcedure(Connection c) throws SQLException;
+
+    // call of the stored procedure taking bid, tid, aid and delta, committing as part of the same round trip
+    protected abstract String getProcedureCallStatement();
+
+    // statements of the built-in write transaction followed by the commit, sent as one unit, parameters in statement order
+    protected abstract String getPipelineStatement();
+
     public void populateTables(Connection c) throws SQLException {
         log.info("Populating tables...");
         long startTime = System.nanoTime();
-        String sql = String.format(INSERT_BRANCHES_STMT, getSchemaPrefix());
+        loadBranches(c);
+        long branchesTime = System.nanoTime();
+        log.info("bench_branches ({})...", smartElapsed(branchesTime - startTime));
+        loadTellers(c);
+        long tellersTime = System.nanoTime();
+        log.info("bench_tellers ({})...", smartElapsed(tellersTime - branchesTime));
+        loadAccountsInParallel(c);
+        long endTime = System.nanoTime();
+        log.info("bench_accounts ({})...", smartElapsed(endTime - tellersTime));
+        log.info("done! ({})\n", smartElapsed(endTime - startTime));
+    }
+
+    protected void loadBranches(Connection c) throws SQLException {
+        if (conf.getLoadMethod() == SERVER) {
+            generateRows(c, "bench_branches", 1, conf.getScale());
+            return;
+        }
+        String sql = getInsertStatement(INSERT_BRANCHES_STMT);
         try (PreparedStatement stmt = c.prepareStatement(sql)) {
             for (int i = 0; i < conf.getScale(); i++) {
                 stmt.setLong(1, i + 1);
@@ -57,7 +129,14 @@ public abstract class DatabaseStrategy {
             stmt.executeBatch();
             c.commit();
         }
-        sql = String.format(INSERT_TELLERS_STMT, getSchemaPrefix());
+    }
+
+    protected void loadTellers(Connection c) throws SQLException {
+        if (conf.getLoadMethod() == SERVER) {
+            generateRows(c, "bench_tellers", 1, conf.getScale() * 10L);
+            return;
+        }
+        String sql = getInsertStatement(INSERT_TELLERS_STMT);
         try (PreparedStatement stmt = c.prepareStatement(sql)) {
             for (int i = 0; i < conf.getScale(); i++) {
                 for (int j = 0; j < 10; j++) {
@@ -70,106 +149,468 @@ public abstract class DatabaseStrategy {
             stmt.executeBatch();
             c.commit();
         }
-        sql = String.format(INSERT_ACCOUNTS_STMT, getSchemaPrefix());
+    }
+
+    // splits accounts by scale range among loaders, the first one reuses the given connection, the others open their own
+    protected void loadAccountsInParallel(Connection c) throws SQLException {
+        int loaders = Math.min(getLoaders(), conf.getScale());
+        long totRows = conf.getScale() * 100000L;
+        AtomicLong loadedRows = new AtomicLong();
+        ExecutorService tPool = Executors.newFixedThreadPool(loaders);
+        List<Future<Void>> tRes = new ArrayList<>(loaders);
+        for (int i = 0; i < loaders; i++) {
+            int fromScale = (int) ((long) conf.getScale() * i / loaders);
+            int toScale = (int) ((long) conf.getScale() * (i + 1) / loaders);
+            boolean ownConnection = i > 0;
+            tRes.add(tPool.submit(() -> {
+                if (ownConnection) {
+                    try (Connection lc = doConnect()) {
+                        loadAccounts(lc, fromScale, toScale, loadedRows);
+                    }
+                } else {
+                    loadAccounts(c, fromScale, toScale, loadedRows);
+                }
+                return null;
+            }));
+        }
+        long startTime = System.nanoTime();
+        awaitAll(tPool, tRes, () -> {
+            long rows = loadedRows.get();
+            double elapsedSec = ((double) (System.nanoTime() - startTime)) / 1_000_000_000d;
+            log.info("{}% ({} rows/sec)...", rows * 100 / totRows, Math.round(rows / elapsedSec));
+        });
+    }
+
+    protected void loadAccounts(Connection c, int fromScale, int toScale, AtomicLong loadedRows) throws SQLException {
+        if (conf.getLoadMethod() == SERVER) {
+            // one statement per commit interval, so that progress can still be logged
+            long lastAid = toScale * 100000L;
+            for (long aid = fromScale * 100000L + 1; aid <= lastAid; aid += getCommitInterval()) {
+                long chunkEnd = Math.min(lastAid, aid + getCommitInterval() - 1);
+                generateRows(c, "bench_accounts", aid, chunkEnd);
+                loadedRows.addAndGet(chunkEnd - aid + 1);
+            }
+            return;
+        }
+        String sql = getInsertStatement(INSERT_ACCOUNTS_STMT);
         try (PreparedStatement stmt = c.prepareStatement(sql)) {
-            for (int i = 0; i < conf.getScale(); i++) {
-                for (int j = 0; j < 100000; j++) {
-                    stmt.setLong(1, i * 100000L + j + 1);
-                    stmt.setLong(2, i + 1);
-                    stmt.setLong(3, 0);
-                    stmt.addBatch();
+            int batchRows = 0;
+            long uncommittedRows = 0;
+            for (long aid = fromScale * 100000L + 1; aid <= toScale * 100000L; aid++) {
+                stmt.setLong(1, aid);
+                stmt.setLong(2, (aid - 1) / 100000 + 1);
+                stmt.setLong(3, 0);
+                stmt.addBatch();
+                if (++batchRows == conf.getBatchSize()) {
+                    stmt.executeBatch();
+                    uncommittedRows += batchRows;
+                    batchRows = 0;
+                    if (uncommittedRows >= getCommitInterval()) {
+                        c.commit();
+                        loadedRows.addAndGet(uncommittedRows);
+                        uncommittedRows = 0;
+                    }
                 }
-                log.info("{}...", i + 1);
+            }
+            if (batchRows > 0) {
                 stmt.executeBatch();
-                c.commit();
+                uncommittedRows += batchRows;
             }
+            c.commit();
+            loadedRows.addAndGet(uncommittedRows);
         }
-        long endTime = System.nanoTime();
-        log.info("done! ({})\n", smartElapsed(endTime - startTime));
+    }
+
+    // rows with ids from firstId to lastId are generated entirely by the database server
+    protected void generateRows(Connection c, String table, long firstId, long lastId) throws SQLException {
+        try (PreparedStatement stmt = c.prepareStatement(getGenerateStatement(table))) {
+            stmt.setLong(1, firstId);
+            stmt.setLong(2, lastId);
+            stmt.executeUpdate();
+        }
+        c.commit();
+    }
+
+    // statement generating rows of the given table server side, taking first and last id as parameters
+    protected abstract String getGenerateStatement(String table);
+
+    protected String getInsertStatement(String template) {
+        return String.format(template, getSchemaPrefix());
+    }
+
+    protected int getLoaders() {
+        return conf.getLoaders();
+    }
+
+    protected int getCommitInterval() {
+        return conf.getCommitInterval();
     }
 
     public void createIndexes(Connection c) throws SQLException {
         log.info("Creating indexes...");
-        c.setAutoCommit(true);
         long startTime = System.nanoTime();
-        String sql = String.format(IDX_BRANCHES_STMT, getSchemaPrefix(), getTablespaceClause()).trim();
-        try (Statement stmt = c.createStatement()) {
-            stmt.execute(sql);
+        List<String> sqls = Arrays.asList(
+                String.format(IDX_BRANCHES_STMT, getSchemaPrefix(), getTablespaceClause()).trim(),
+                String.format(IDX_TELLERS_STMT, getSchemaPrefix(), getTablespaceClause()).trim(),
+                String.format(IDX_ACCOUNTS_STMT, getSchemaPrefix(), getTablespaceClause()).trim());
+        if (conf.isParallelIndexes()) {
+            // one connection per table, so that the three builds run concurrently
+            ExecutorService tPool = Executors.newFixedThreadPool(sqls.size());
+            List<Future<Void>> tRes = new ArrayList<>(sqls.size());
+            for (String sql : sqls) {
+                tRes.add(tPool.submit(() -> {
+                    try (Connection ic = doConnect(); Statement stmt = ic.createStatement()) {
+                        ic.setAutoCommit(true);
+                        stmt.execute(sql);
+                    }
+                    return null;
+                }));
+            }
+            awaitAll(tPool, tRes, () -> log.info("..."));
+        } else {
+            c.setAutoCommit(true);
+            for (String sql : sqls) {
+                try (Statement stmt = c.createStatement()) {
+                    stmt.execute(sql);
+                }
+            }
+            c.setAutoCommit(false);
         }
-        sql = String.format(IDX_TELLERS_STMT, getSchemaPrefix(), getTablespaceClause()).trim();
-        try (Statement stmt = c.createStatement()) {
-            stmt.execute(sql);
+        long endTime = System.nanoTime();
+        log.info("done! ({})\n", smartElapsed(endTime - startTime));
+    }
+
+    // waits for parallel init tasks, invoking onProgress periodically and failing fast on the first error
+    protected void awaitAll(ExecutorService tPool, List<Future<Void>> tRes, Runnable onProgress) throws SQLException {
+        tPool.shutdown();
+        try {
+            while (!tPool.awaitTermination(PROGRESS_INTERVAL_SEC, TimeUnit.SECONDS)) {
+                for (Future<Void> f : tRes) {
+                    if (f.isDone()) {
+                        f.get();
+                    }
+                }
+                onProgress.run();
+            }
+            for (Future<Void> f : tRes) {
+                f.get();
+            }
+        } catch (InterruptedException ex) {
+            tPool.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for parallel tasks", ex);
+        } catch (ExecutionException ex) {
+            tPool.shutdownNow();
+            if (ex.getCause() instanceof SQLException sqlEx) {
+                throw sqlEx;
+            }
+            throw new SQLException(ex.getCause().getMessage(), ex.getCause());
         }
-        sql = String.format(IDX_ACCOUNTS_STMT, getSchemaPrefix(), getTablespaceClause()).trim();
+    }
+
+    public abstract void analyzeTables(Connection c) throws SQLException;
+
+    // cheap sanity check of a dataset left in place by a previous init: small tables are counted,
+    // the large one is only checked for its highest key, which is an index lookup
+    public void checkTables(Connection c) throws SQLException {
+        log.info("Checking tables...");
+        long startTime = System.nanoTime();
+        long branches = queryLong(c, String.format(COUNT_BRANCHES_STMT, getSchemaPrefix()));
+        if (branches != conf.getScale()) {
+            throw new SQLException(String.format("Tables were initialized with scale %d, not %d", branches, conf.getScale()));
+        }
+        long tellers = queryLong(c, String.format(COUNT_TELLERS_STMT, getSchemaPrefix()));
+        long maxAid = queryLong(c, String.format(MAX_AID_ACCOUNTS_STMT, getSchemaPrefix()));
+        if (tellers != conf.getScale() * 10L || maxAid != conf.getScale() * 100000L) {
+            throw new SQLException("Tables are not consistent with scale " + conf.getScale() + ", please init again");
+        }
+        // checking the table exists
+        queryLong(c, String.format(COUNT_HISTORY_STMT, getSchemaPrefix()));
+        c.commit();
+        long endTime = System.nanoTime();
+        log.info("done! ({})\n", smartElapsed(endTime - startTime));
+    }
+
+    public void truncateHistory(Connection c) throws SQLException {
+        log.info("Truncating history...");
+        c.setAutoCommit(true);
+        long startTime = System.nanoTime();
         try (Statement stmt = c.createStatement()) {
-            stmt.execute(sql);
+            stmt.execute(String.format(TRUNCATE_HISTORY_STMT, getSchemaPrefix()));
         }
         long endTime = System.nanoTime();
         c.setAutoCommit(false);
         log.info("done! ({})\n", smartElapsed(endTime - startTime));
     }
 
-    public abstract void analyzeTables(Connection c) throws SQLException;
+    private long queryLong(Connection c, String sql) throws SQLException {
+        try (Statement stmt = c.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // names of the commands timed with per command reporting, in the same order as command indexes:
+    // workload statements followed by the commit, or statements of all scripts followed by the commit of each script
+    public List<String> getCommandNames() {
+        List<String> ret = new ArrayList<>();
+        if (conf.getProtocol() != STATEMENTS) {
+            ret.add(getSingleCallStatement().replaceAll("\\s+", " "));
+        } else if (!conf.getScripts().isEmpty()) {
+            conf.getScripts().forEach(script -> script.getStatements().forEach(stmt -> ret.add(script.getName() + ": " + stmt.getSql().replaceAll("\\s+", " "))));
+            conf.getScripts().forEach(script -> ret.add(script.getName() + ": COMMIT"));
+        } else {
+            String[] sqls = {UPDATE_ACCOUNTS_STMT, SELECT_ABALANCE_ACCOUNTS_STMT, UPDATE_TELLERS_STMT, UPDATE_BRANCHES_STMT, INSERT_HISTORY_STMT,
+                    SELECT_BRANCHES_STMT, SELECT_TELLERS_STMT, SELECT_ACCOUNTS_STMT};
+            for (String sql : sqls) {
+                ret.add(String.format(sql, getSchemaPrefix()));
+            }
+            ret.add("COMMIT");
+        }
+        return ret;
+    }
 
-    public void runWriteTransaction(Connection c, long bid, long tid, long aid, int delta) throws SQLException {
-        try (PreparedStatement stmt = c.prepareStatement(String.format(UPDATE_ACCOUNTS_STMT, getSchemaPrefix()))) {
+    public DatabaseSession openSession(LatencyRecorder[] commandRecorders) throws SQLException {
+        String[] sqls;
+        if (conf.getProtocol() != STATEMENTS) {
+            sqls = new String[]{getSingleCallStatement()};
+        } else if (!conf.getScripts().isEmpty()) {
+            // statements of all custom scripts, one after the other
+            sqls = conf.getScripts().stream()
+                    .flatMap(script -> script.getStatements().stream())
+                    .map(ScriptStatement::getSql)
+                    .toArray(String[]::new);
+        } else if (conf.isReadOnly()) {
+            sqls = new String[WORKLOAD_STMT_COUNT];
+            sqls[SELECT_BRANCHES] = String.format(SELECT_BRANCHES_STMT, getSchemaPrefix());
+            sqls[SELECT_TELLERS] = String.format(SELECT_TELLERS_STMT, getSchemaPrefix());
+            sqls[SELECT_ACCOUNTS] = String.format(SELECT_ACCOUNTS_STMT, getSchemaPrefix());
+        } else {
+            sqls = new String[WORKLOAD_STMT_COUNT];
+            sqls[UPDATE_ACCOUNTS] = String.format(UPDATE_ACCOUNTS_STMT, getSchemaPrefix());
+            sqls[SELECT_ABALANCE_ACCOUNTS] = String.format(SELECT_ABALANCE_ACCOUNTS_STMT, getSchemaPrefix());
+            sqls[UPDATE_TELLERS] = String.format(UPDATE_TELLERS_STMT, getSchemaPrefix());
+            sqls[UPDATE_BRANCHES] = String.format(UPDATE_BRANCHES_STMT, getSchemaPrefix());
+            sqls[INSERT_HISTORY] = String.format(INSERT_HISTORY_STMT, getSchemaPrefix());
+        }
+        Connection c = doConnect();
+        try {
+            setIsolation(c);
+            return new DatabaseSession(c, sqls, conf.getQueryMode() == PREPARED, commandRecorders);
+        } catch (SQLException ex) {
+            c.close();
+            throw ex;
+        }
+    }
+
+    // only workload sessions get the requested isolation level, data loading keeps the default
+    private void setIsolation(Connection c) throws SQLException {
+        switch (conf.getIsolation()) {
+            case READ_COMMITTED -> c.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            case REPEATABLE_READ -> c.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            case SERIALIZABLE -> c.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            default -> {
+            }
+        }
+    }
+
+    public void runWriteTransaction(DatabaseSession s, long bid, long tid, long aid, int delta) throws SQLException {
+        long t = s.startCommand();
+        PreparedStatement stmt = s.getStatement(UPDATE_ACCOUNTS);
+        try {
             stmt.setInt(1, delta);
             stmt.setLong(2, aid);
             stmt.executeUpdate();
+        } finally {
+            s.releaseStatement(stmt);
         }
-        try (PreparedStatement stmt = c.prepareStatement(String.format(SELECT_ABALANCE_ACCOUNTS_STMT, getSchemaPrefix()))) {
+        s.endCommand(UPDATE_ACCOUNTS, t);
+        t = s.startCommand();
+        stmt = s.getStatement(SELECT_ABALANCE_ACCOUNTS);
+        try {
             stmt.setLong(1, aid);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     rs.getLong(1);
                 }
             }
+        } finally {
+            s.releaseStatement(stmt);
         }
-        try (PreparedStatement stmt = c.prepareStatement(String.format(UPDATE_TELLERS_STMT, getSchemaPrefix()))) {
+        s.endCommand(SELECT_ABALANCE_ACCOUNTS, t);
+        t = s.startCommand();
+        stmt = s.getStatement(UPDATE_TELLERS);
+        try {
             stmt.setInt(1, delta);
             stmt.setLong(2, tid);
             stmt.executeUpdate();
+        } finally {
+            s.releaseStatement(stmt);
         }
-        try (PreparedStatement stmt = c.prepareStatement(String.format(UPDATE_BRANCHES_STMT, getSchemaPrefix()))) {
+        s.endCommand(UPDATE_TELLERS, t);
+        t = s.startCommand();
+        stmt = s.getStatement(UPDATE_BRANCHES);
+        try {
             stmt.setInt(1, delta);
             stmt.setLong(2, bid);
             stmt.executeUpdate();
+        } finally {
+            s.releaseStatement(stmt);
         }
-        try (PreparedStatement stmt = c.prepareStatement(String.format(INSERT_HISTORY_STMT, getSchemaPrefix()))) {
+        s.endCommand(UPDATE_BRANCHES, t);
+        t = s.startCommand();
+        stmt = s.getStatement(INSERT_HISTORY);
+        try {
             stmt.setLong(1, tid);
             stmt.setLong(2, bid);
-            stmt.setLong(3, bid);
+            stmt.setLong(3, aid);
             stmt.setInt(4, delta);
             stmt.executeUpdate();
+        } finally {
+            s.releaseStatement(stmt);
         }
-        c.commit();
+        s.endCommand(INSERT_HISTORY, t);
+        t = s.startCommand();
+        s.getConnection().commit();
+        s.endCommand(COMMIT, t);
     }
 
-    public void runReadOnlyTransaction(Connection c, long bid, long tid, long aid) throws SQLException {
-        try (PreparedStatement stmt = c.prepareStatement(String.format(SELECT_BRANCHES_STMT, getSchemaPrefix()))) {
+    public void runProcedureTransaction(DatabaseSession s, long bid, long tid, long aid, int delta) throws SQLException {
+        long t = s.startCommand();
+        PreparedStatement stmt = s.getStatement(SINGLE_CALL);
+        try {
             stmt.setLong(1, bid);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    rs.getLong(1);
+            stmt.setLong(2, tid);
+            stmt.setLong(3, aid);
+            stmt.setInt(4, delta);
+            executeAll(stmt);
+        } finally {
+            s.releaseStatement(stmt);
+        }
+        s.endCommand(SINGLE_CALL, t);
+    }
+
+    public void runPipelinedTransaction(DatabaseSession s, long bid, long tid, long aid, int delta) throws SQLException {
+        long t = s.startCommand();
+        PreparedStatement stmt = s.getStatement(SINGLE_CALL);
+        try {
+            stmt.setInt(1, delta);
+            stmt.setLong(2, aid);
+            stmt.setLong(3, aid);
+            stmt.setInt(4, delta);
+            stmt.setLong(5, tid);
+            stmt.setInt(6, delta);
+            stmt.setLong(7, bid);
+            stmt.setLong(8, tid);
+            stmt.setLong(9, bid);
+            stmt.setLong(10, aid);
+            stmt.setInt(11, delta);
+            executeAll(stmt);
+        } finally {
+            s.releaseStatement(stmt);
+        }
+        s.endCommand(SINGLE_CALL, t);
+    }
+
+    // committed as well, so that snapshots taken at repeatable read or serializable isolation last one transaction only
+    public void runReadOnlyTransaction(DatabaseSession s, long bid, long tid, long aid) throws SQLException {
+        runSelect(s, SELECT_BRANCHES, bid);
+        runSelect(s, SELECT_TELLERS, tid);
+        runSelect(s, SELECT_ACCOUNTS, aid);
+        long t = s.startCommand();
+        s.getConnection().commit();
+        s.endCommand(COMMIT, t);
+    }
+
+    // values are the ones drawn for the variables of the script, in the same order
+    public void runScript(DatabaseSession s, int scriptIdx, long[] values) throws SQLException {
+        List<ScriptStatement> statements = conf.getScripts().get(scriptIdx).getStatements();
+        for (int i = 0; i < statements.size(); i++) {
+            int[] params = statements.get(i).getParams();
+            long t = s.startCommand();
+            PreparedStatement stmt = s.getStatement(scriptOffsets[scriptIdx] + i);
+            try {
+                for (int j = 0; j < params.length; j++) {
+                    stmt.setLong(j + 1, values[params[j]]);
+                }
+                if (stmt.execute()) {
+                    try (ResultSet rs = stmt.getResultSet()) {
+                        while (rs.next()) {
+                            rs.getObject(1);
+                        }
+                    }
                 }
+            } finally {
+                s.releaseStatement(stmt);
             }
+            s.endCommand(scriptOffsets[scriptIdx] + i, t);
         }
-        try (PreparedStatement stmt = c.prepareStatement(String.format(SELECT_TELLERS_STMT, getSchemaPrefix()))) {
-            stmt.setLong(1, tid);
+        long t = s.startCommand();
+        s.getConnection().commit();
+        s.endCommand(scriptCommitOffset + scriptIdx, t);
+    }
+
+    private void runSelect(DatabaseSession s, int idx, long id) throws SQLException {
+        long t = s.startCommand();
+        PreparedStatement stmt = s.getStatement(idx);
+        try {
+            stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     rs.getLong(1);
                 }
             }
+        } finally {
+            s.releaseStatement(stmt);
         }
-        try (PreparedStatement stmt = c.prepareStatement(String.format(SELECT_ACCOUNTS_STMT, getSchemaPrefix()))) {
-            stmt.setLong(1, aid);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    rs.getLong(1);
+        s.endCommand(idx, t);
+    }
+
+    // consumes every result of a statement made of several ones, so that none of them is left pending
+    private void executeAll(PreparedStatement stmt) throws SQLException {
+        boolean isResultSet = stmt.execute();
+        while (isResultSet || stmt.getUpdateCount() != -1) {
+            if (isResultSet) {
+                try (ResultSet rs = stmt.getResultSet()) {
+                    while (rs.next()) {
+                        rs.getObject(1);
+                    }
                 }
             }
+            isResultSet = stmt.getMoreResults();
+        }
+    }
+
+    private String getSingleCallStatement() {
+        return conf.getProtocol() == PROCEDURE ? getProcedureCallStatement() : getPipelineStatement();
+    }
+
+    // network round trips of a transaction as the protocol dictates, averaged by weight over custom scripts,
+    // each statement and each commit costs one
+    public double getRoundTrips() {
+        if (conf.getProtocol() != STATEMENTS) {
+            return 1;
         }
+        if (!conf.getScripts().isEmpty()) {
+            double trips = conf.getScripts().stream().mapToDouble(script -> (double) script.getWeight() * (script.getStatements().size() + 1)).sum();
+            return trips / conf.getScripts().stream().mapToInt(WorkloadScript::getWeight).sum();
+        }
+        return conf.isReadOnly() ? 4 : 6;
+    }
+
+    // serialization failures and deadlocks, that succeed if the same transaction is simply run again
+    public boolean isRetryable(SQLException ex) {
+        return "40001".equals(ex.getSQLState()) || "40P01".equals(ex.getSQLState());
+    }
+
+    // errors after which the session cannot be used anymore
+    public boolean isConnectionError(SQLException ex) {
+        return ex instanceof SQLRecoverableException || ex instanceof SQLNonTransientConnectionException
+                || (ex.getSQLState() != null && ex.getSQLState().startsWith("08"));
+    }
+
+    // errors are counted by key in the final report
+    public String describeError(SQLException ex) {
+        return "SQLState " + (ex.getSQLState() != null ? ex.getSQLState() : "unknown");
     }
 
     public String getSchemaPrefix() {
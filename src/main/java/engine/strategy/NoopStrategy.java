@@ -0,0 +1,105 @@
+package engine.strategy;
+
+import engine.dto.BenchConf;
+import lombok.extern.log4j.Log4j2;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+// in-process engine answering every statement at once, what it measures is the ceiling of the client machinery itself:
+// key generation, statement handling, recording and reporting, with no server and no network in the way
+@Log4j2
+public class NoopStrategy extends DatabaseStrategy {
+
+    private static final String PROCEDURE_CALL_STMT = "CALL %sbench_transaction(?, ?, ?, ?)";
+
+    public NoopStrategy(BenchConf conf) throws ClassNotFoundException {
+        super(conf);
+    }
+
+    @Override
+    public Connection doConnect() throws SQLException {
+        Connection c = new SimulatedConnection(this);
+        c.setAutoCommit(false);
+        return c;
+    }
+
+    // there are no tables, initialization has nothing to do
+    @Override
+    public void dropTables(Connection c) {
+    }
+
+    @Override
+    public void createTables(Connection c) {
+    }
+
+    @Override
+    public void populateTables(Connection c) {
+        log.info("Nothing to populate with engine {}\n", conf.getEngine());
+    }
+
+    @Override
+    public void createIndexes(Connection c) {
+    }
+
+    @Override
+    public void createProcedure(Connection c) {
+    }
+
+    @Override
+    public void analyzeTables(Connection c) {
+    }
+
+    @Override
+    public void checkTables(Connection c) {
+    }
+
+    @Override
+    protected String getProcedureCallStatement() {
+        return String.format(PROCEDURE_CALL_STMT, getSchemaPrefix());
+    }
+
+    @Override
+    protected String getPipelineStatement() {
+        return String.join("; ",
+                String.format(UPDATE_ACCOUNTS_STMT, getSchemaPrefix()),
+                String.format(SELECT_ABALANCE_ACCOUNTS_STMT, getSchemaPrefix()),
+                String.format(UPDATE_TELLERS_STMT, getSchemaPrefix()),
+                String.format(UPDATE_BRANCHES_STMT, getSchemaPrefix()),
+                String.format(INSERT_HISTORY_STMT, getSchemaPrefix()),
+                "COMMIT");
+    }
+
+    @Override
+    protected String getGenerateStatement(String table) {
+        return "";
+    }
+
+    @Override
+    public String getNologgingClause() {
+        return "";
+    }
+
+    // hooks of the simulated connections: statements with their integer parameters, and the end of a transaction,
+    // locks are the row locks taken by the connection so far
+    void execute(List<Semaphore> locks, String sql, long[] params) throws SQLException {
+    }
+
+    void commit(List<Semaphore> locks) throws SQLException {
+        release(locks);
+    }
+
+    void rollback(List<Semaphore> locks) throws SQLException {
+        release(locks);
+    }
+
+    void release(List<Semaphore> locks) {
+        for (Semaphore lock : locks) {
+            lock.release();
+        }
+        locks.clear();
+    }
+
+}
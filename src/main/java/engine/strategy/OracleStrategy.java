@@ -6,6 +6,8 @@ import lombok.extern.log4j.Log4j2;
 import java.sql.*;
 import java.util.Properties;
 
+import static engine.dto.BenchConf.LoadMethod.DIRECT;
+import static engine.dto.BenchConf.LoadMethod.SERVER;
 import static engine.utils.CommonUtils.smartElapsed;
 
 @Log4j2
@@ -14,6 +16,7 @@ public class OracleStrategy extends DatabaseStrategy {
     private static final String JDBC_URL_TEMPLATE = "jdbc:oracle:thin:@//%s:%d/%s";
 
     private static final String DROP_TABLE_STMT = "DROP TABLE %s%s CASCADE CONSTRAINTS PURGE";
+    private static final String DROP_PROCEDURE_STMT = "DROP PROCEDURE %sbench_transaction";
     private static final String ANALYZE_TABLE_STMT = "{CALL dbms_stats.gather_table_stats(ownname => ?, tabname => ?, estimate_percent => dbms_stats.auto_sample_size, degree=> dbms_stats.auto_degree, granularity => 'ALL')}";
 
     private static final String CREATE_BRANCHES_STMT = "CREATE TABLE %sbench_branches (bid NUMBER(38,0) NOT NULL, bbalance NUMBER(38,0)) %s %s";
@@ -21,6 +24,35 @@ public class OracleStrategy extends DatabaseStrategy {
     private static final String CREATE_ACCOUNTS_STMT = "CREATE TABLE %sbench_accounts (aid NUMBER(38,0) NOT NULL, bid NUMBER(38,0) NOT NULL, abalance NUMBER(38,0)) %s %s";
     private static final String CREATE_HISTORY_STMT = "CREATE TABLE %sbench_history (tid number(38,0) NOT NULL, bid number(38,0) NOT NULL, aid number(38,0) NOT NULL, delta number(38,0), mtime timestamp(6)) %s %s";
 
+    // a single row source holding the id range, expanded by CONNECT BY and loaded with a direct-path insert
+    private static final String GENERATE_BRANCHES_STMT = "INSERT /*+ APPEND */ INTO %sbench_branches (bid, bbalance) "
+            + "SELECT first_id + LEVEL - 1, 0 FROM (SELECT ? AS first_id, ? AS last_id FROM dual) CONNECT BY LEVEL <= last_id - first_id + 1";
+    private static final String GENERATE_TELLERS_STMT = "INSERT /*+ APPEND */ INTO %sbench_tellers (tid, bid, tbalance) "
+            + "SELECT first_id + LEVEL - 1, TRUNC((first_id + LEVEL - 2) / 10) + 1, 0 FROM (SELECT ? AS first_id, ? AS last_id FROM dual) CONNECT BY LEVEL <= last_id - first_id + 1";
+    private static final String GENERATE_ACCOUNTS_STMT = "INSERT /*+ APPEND */ INTO %sbench_accounts (aid, bid, abalance) "
+            + "SELECT first_id + LEVEL - 1, TRUNC((first_id + LEVEL - 2) / 100000) + 1, 0 FROM (SELECT ? AS first_id, ? AS last_id FROM dual) CONNECT BY LEVEL <= last_id - first_id + 1";
+
+    private static final String CREATE_PROCEDURE_STMT = "CREATE OR REPLACE PROCEDURE %1$sbench_transaction(p_bid NUMBER, p_tid NUMBER, p_aid NUMBER, p_delta NUMBER) AS "
+            + "v_abalance NUMBER; "
+            + "BEGIN "
+            + "UPDATE %1$sbench_accounts SET abalance = abalance + p_delta WHERE aid = p_aid; "
+            + "SELECT abalance INTO v_abalance FROM %1$sbench_accounts WHERE aid = p_aid; "
+            + "UPDATE %1$sbench_tellers SET tbalance = tbalance + p_delta WHERE tid = p_tid; "
+            + "UPDATE %1$sbench_branches SET bbalance = bbalance + p_delta WHERE bid = p_bid; "
+            + "INSERT INTO %1$sbench_history (tid, bid, aid, delta, mtime) VALUES (p_tid, p_bid, p_aid, p_delta, CURRENT_TIMESTAMP); "
+            + "END;";
+    // anonymous blocks run entirely server side, so the commit travels with the call
+    private static final String PROCEDURE_CALL_STMT = "BEGIN %sbench_transaction(?, ?, ?, ?); COMMIT; END;";
+    private static final String PIPELINE_STMT = "DECLARE v_abalance NUMBER; "
+            + "BEGIN "
+            + "UPDATE %1$sbench_accounts SET abalance = abalance + ? WHERE aid = ?; "
+            + "SELECT abalance INTO v_abalance FROM %1$sbench_accounts WHERE aid = ?; "
+            + "UPDATE %1$sbench_tellers SET tbalance = tbalance + ? WHERE tid = ?; "
+            + "UPDATE %1$sbench_branches SET bbalance = bbalance + ? WHERE bid = ?; "
+            + "INSERT INTO %1$sbench_history (tid, bid, aid, delta, mtime) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP); "
+            + "COMMIT; "
+            + "END;";
+
     public OracleStrategy(BenchConf conf) throws ClassNotFoundException {
         super(conf);
         Class.forName("oracle.jdbc.OracleDriver");
@@ -39,6 +71,18 @@ public class OracleStrategy extends DatabaseStrategy {
         return c;
     }
 
+    // ORA-00060 deadlock detected, ORA-08177 can't serialize access for this transaction
+    @Override
+    public boolean isRetryable(SQLException ex) {
+        return ex.getErrorCode() == 60 || ex.getErrorCode() == 8177 || super.isRetryable(ex);
+    }
+
+    // oracle error codes are far more telling than its SQL states
+    @Override
+    public String describeError(SQLException ex) {
+        return ex.getErrorCode() != 0 ? String.format("ORA-%05d", ex.getErrorCode()) : super.describeError(ex);
+    }
+
     @Override
     public void dropTables(Connection c) throws SQLException {
         log.info("Dropping tables...");
@@ -55,6 +99,14 @@ public class OracleStrategy extends DatabaseStrategy {
                 }
             }
         }
+        try (Statement stmt = c.createStatement()) {
+            stmt.execute(String.format(DROP_PROCEDURE_STMT, getSchemaPrefix()));
+        } catch (SQLException ex) {
+            // ignoring error ORA-04043: object does not exist
+            if (ex.getErrorCode() != 4043) {
+                throw ex;
+            }
+        }
         long endTime = System.nanoTime();
         c.setAutoCommit(false);
         log.info("done! ({})\n", smartElapsed(endTime - startTime));
@@ -86,6 +138,67 @@ public class OracleStrategy extends DatabaseStrategy {
         log.info("done! ({})\n", smartElapsed(endTime - startTime));
     }
 
+    @Override
+    public void createProcedure(Connection c) throws SQLException {
+        log.info("Creating procedure...");
+        c.setAutoCommit(true);
+        long startTime = System.nanoTime();
+        try (Statement stmt = c.createStatement()) {
+            stmt.execute(String.format(CREATE_PROCEDURE_STMT, getSchemaPrefix()));
+            // compilation errors only raise a warning, leaving an invalid procedure behind
+            if (stmt.getWarnings() != null) {
+                throw new SQLException("Procedure created with compilation errors: " + stmt.getWarnings().getMessage());
+            }
+        }
+        long endTime = System.nanoTime();
+        c.setAutoCommit(false);
+        log.info("done! ({})\n", smartElapsed(endTime - startTime));
+    }
+
+    @Override
+    protected String getProcedureCallStatement() {
+        return String.format(PROCEDURE_CALL_STMT, getSchemaPrefix());
+    }
+
+    @Override
+    protected String getPipelineStatement() {
+        return String.format(PIPELINE_STMT, getSchemaPrefix());
+    }
+
+    // direct-path inserts from array binds, rows are written above the high water mark bypassing the buffer cache
+    // and, with --nologging, without generating redo
+    @Override
+    protected String getInsertStatement(String template) {
+        String sql = super.getInsertStatement(template);
+        return conf.getLoadMethod() == DIRECT ? sql.replaceFirst("^INSERT INTO", "INSERT /*+ APPEND_VALUES */ INTO") : sql;
+    }
+
+    @Override
+    protected String getGenerateStatement(String table) {
+        return switch (table) {
+            case "bench_branches" -> String.format(GENERATE_BRANCHES_STMT, getSchemaPrefix());
+            case "bench_tellers" -> String.format(GENERATE_TELLERS_STMT, getSchemaPrefix());
+            case "bench_accounts" -> String.format(GENERATE_ACCOUNTS_STMT, getSchemaPrefix());
+            default -> throw new AssertionError("Unreachable code branch");
+        };
+    }
+
+    // a direct-path insert locks the whole table, so concurrent loaders would only queue behind each other
+    @Override
+    protected int getLoaders() {
+        if ((conf.getLoadMethod() == DIRECT || conf.getLoadMethod() == SERVER) && conf.getLoaders() > 1) {
+            log.info("direct-path inserts lock the whole table, using a single loader...");
+            return 1;
+        }
+        return super.getLoaders();
+    }
+
+    // a direct-path insert must be committed before the table can be touched again in the same transaction (ORA-12838)
+    @Override
+    protected int getCommitInterval() {
+        return conf.getLoadMethod() == DIRECT ? 1 : super.getCommitInterval();
+    }
+
     @Override
     public void analyzeTables(Connection c) throws SQLException {
         log.info("Analyzing...");
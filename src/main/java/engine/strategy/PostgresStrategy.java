@@ -2,15 +2,20 @@ package engine.strategy;
 
 import engine.dto.BenchConf;
 import lombok.extern.log4j.Log4j2;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static engine.dto.BenchConf.LoadMethod.COPY;
 import static engine.utils.CommonUtils.smartElapsed;
 
 @Log4j2
@@ -19,13 +24,36 @@ public class PostgresStrategy extends DatabaseStrategy {
     private static final String JDBC_URL_TEMPLATE = "jdbc:postgresql://%s:%d/%s";
 
     private static final String DROP_TABLE_STMT = "DROP TABLE IF EXISTS %s%s CASCADE";
+    private static final String DROP_PROCEDURE_STMT = "DROP FUNCTION IF EXISTS %sbench_transaction(bigint, bigint, bigint, integer)";
     private static final String ANALYZE_TABLE_STMT = "VACUUM ANALYZE %s%s";
 
     private static final String CREATE_BRANCHES_STMT = "CREATE %s TABLE %sbench_branches (bid INTEGER NOT NULL, bbalance INTEGER) %s";
     private static final String CREATE_TELLERS_STMT = "CREATE %s TABLE %sbench_tellers (tid INTEGER NOT NULL, bid INTEGER NOT NULL, tbalance INTEGER) %s";
     private static final String CREATE_ACCOUNTS_STMT = "CREATE %s TABLE %sbench_accounts (aid INTEGER NOT NULL, bid INTEGER NOT NULL, abalance INTEGER) %s";
+    private static final String COPY_BRANCHES_STMT = "COPY %sbench_branches (bid, bbalance) FROM STDIN";
+    private static final String COPY_TELLERS_STMT = "COPY %sbench_tellers (tid, bid, tbalance) FROM STDIN";
+    private static final String COPY_ACCOUNTS_STMT = "COPY %sbench_accounts (aid, bid, abalance) FROM STDIN";
+
+    private static final String GENERATE_BRANCHES_STMT = "INSERT INTO %sbench_branches (bid, bbalance) SELECT id, 0 FROM generate_series(?::bigint, ?::bigint) id";
+    private static final String GENERATE_TELLERS_STMT = "INSERT INTO %sbench_tellers (tid, bid, tbalance) SELECT id, (id - 1) / 10 + 1, 0 FROM generate_series(?::bigint, ?::bigint) id";
+    private static final String GENERATE_ACCOUNTS_STMT = "INSERT INTO %sbench_accounts (aid, bid, abalance) SELECT id, (id - 1) / 100000 + 1, 0 FROM generate_series(?::bigint, ?::bigint) id";
+
     private static final String CREATE_HISTORY_STMT = "CREATE %s TABLE %sbench_history (tid INTEGER NOT NULL, bid INTEGER NOT NULL, aid INTEGER NOT NULL, delta INTEGER, mtime TIMESTAMP(6)) %s";
 
+    // the built-in write transaction as a function, ids are bigint as bound by the driver
+    private static final String CREATE_PROCEDURE_STMT = "CREATE OR REPLACE FUNCTION %1$sbench_transaction(p_bid bigint, p_tid bigint, p_aid bigint, p_delta integer) RETURNS integer AS $$ "
+            + "DECLARE v_abalance integer; "
+            + "BEGIN "
+            + "UPDATE %1$sbench_accounts SET abalance = abalance + p_delta WHERE aid = p_aid; "
+            + "SELECT abalance INTO v_abalance FROM %1$sbench_accounts WHERE aid = p_aid; "
+            + "UPDATE %1$sbench_tellers SET tbalance = tbalance + p_delta WHERE tid = p_tid; "
+            + "UPDATE %1$sbench_branches SET bbalance = bbalance + p_delta WHERE bid = p_bid; "
+            + "INSERT INTO %1$sbench_history (tid, bid, aid, delta, mtime) VALUES (p_tid, p_bid, p_aid, p_delta, CURRENT_TIMESTAMP); "
+            + "RETURN v_abalance; "
+            + "END $$ LANGUAGE plpgsql";
+    // the driver sends every statement of a multi statement query before a single sync message, that is one round trip
+    private static final String PROCEDURE_CALL_STMT = "SELECT %sbench_transaction(?, ?, ?, ?); COMMIT";
+
     public PostgresStrategy(BenchConf conf) throws ClassNotFoundException {
         super(conf);
         Logger logger = Logger.getLogger("org.postgresql");
@@ -57,6 +85,9 @@ public class PostgresStrategy extends DatabaseStrategy {
                 stmt.execute(sql);
             }
         }
+        try (Statement stmt = c.createStatement()) {
+            stmt.execute(String.format(DROP_PROCEDURE_STMT, getSchemaPrefix()));
+        }
         long endTime = System.nanoTime();
         c.setAutoCommit(false);
         log.info("done! ({})\n", smartElapsed(endTime - startTime));
@@ -88,6 +119,123 @@ public class PostgresStrategy extends DatabaseStrategy {
         log.info("done! ({})\n", smartElapsed(endTime - startTime));
     }
 
+    @Override
+    public void createProcedure(Connection c) throws SQLException {
+        log.info("Creating procedure...");
+        c.setAutoCommit(true);
+        long startTime = System.nanoTime();
+        try (Statement stmt = c.createStatement()) {
+            stmt.execute(String.format(CREATE_PROCEDURE_STMT, getSchemaPrefix()));
+        }
+        long endTime = System.nanoTime();
+        c.setAutoCommit(false);
+        log.info("done! ({})\n", smartElapsed(endTime - startTime));
+    }
+
+    @Override
+    protected String getProcedureCallStatement() {
+        return String.format(PROCEDURE_CALL_STMT, getSchemaPrefix());
+    }
+
+    @Override
+    protected String getPipelineStatement() {
+        return String.join("; ",
+                String.format(UPDATE_ACCOUNTS_STMT, getSchemaPrefix()),
+                String.format(SELECT_ABALANCE_ACCOUNTS_STMT, getSchemaPrefix()),
+                String.format(UPDATE_TELLERS_STMT, getSchemaPrefix()),
+                String.format(UPDATE_BRANCHES_STMT, getSchemaPrefix()),
+                String.format(INSERT_HISTORY_STMT, getSchemaPrefix()),
+                "COMMIT");
+    }
+
+    @Override
+    protected void loadBranches(Connection c) throws SQLException {
+        if (conf.getLoadMethod() != COPY) {
+            super.loadBranches(c);
+            return;
+        }
+        CopyManager cm = c.unwrap(PGConnection.class).getCopyAPI();
+        CopyBuffer buf = new CopyBuffer();
+        CopyIn ci = cm.copyIn(String.format(COPY_BRANCHES_STMT, getSchemaPrefix()));
+        try {
+            for (long bid = 1; bid <= conf.getScale(); bid++) {
+                buf.putRow(ci, bid, 0);
+            }
+            buf.flush(ci);
+            ci.endCopy();
+        } finally {
+            if (ci.isActive()) {
+                ci.cancelCopy();
+            }
+        }
+        c.commit();
+    }
+
+    @Override
+    protected void loadTellers(Connection c) throws SQLException {
+        if (conf.getLoadMethod() != COPY) {
+            super.loadTellers(c);
+            return;
+        }
+        CopyManager cm = c.unwrap(PGConnection.class).getCopyAPI();
+        CopyBuffer buf = new CopyBuffer();
+        CopyIn ci = cm.copyIn(String.format(COPY_TELLERS_STMT, getSchemaPrefix()));
+        try {
+            for (long tid = 1; tid <= conf.getScale() * 10L; tid++) {
+                buf.putRow(ci, tid, (tid - 1) / 10 + 1, 0);
+            }
+            buf.flush(ci);
+            ci.endCopy();
+        } finally {
+            if (ci.isActive()) {
+                ci.cancelCopy();
+            }
+        }
+        c.commit();
+    }
+
+    @Override
+    protected void loadAccounts(Connection c, int fromScale, int toScale, AtomicLong loadedRows) throws SQLException {
+        if (conf.getLoadMethod() != COPY) {
+            super.loadAccounts(c, fromScale, toScale, loadedRows);
+            return;
+        }
+        // rows are generated on the fly into a reusable buffer, one COPY per commit interval
+        CopyManager cm = c.unwrap(PGConnection.class).getCopyAPI();
+        CopyBuffer buf = new CopyBuffer();
+        String sql = String.format(COPY_ACCOUNTS_STMT, getSchemaPrefix());
+        long aid = fromScale * 100000L + 1;
+        long lastAid = toScale * 100000L;
+        while (aid <= lastAid) {
+            long chunkStart = aid;
+            long chunkEnd = Math.min(lastAid, aid + conf.getCommitInterval() - 1);
+            CopyIn ci = cm.copyIn(sql);
+            try {
+                for (; aid <= chunkEnd; aid++) {
+                    buf.putRow(ci, aid, (aid - 1) / 100000 + 1, 0);
+                }
+                buf.flush(ci);
+                ci.endCopy();
+            } finally {
+                if (ci.isActive()) {
+                    ci.cancelCopy();
+                }
+            }
+            c.commit();
+            loadedRows.addAndGet(chunkEnd - chunkStart + 1);
+        }
+    }
+
+    @Override
+    protected String getGenerateStatement(String table) {
+        return switch (table) {
+            case "bench_branches" -> String.format(GENERATE_BRANCHES_STMT, getSchemaPrefix());
+            case "bench_tellers" -> String.format(GENERATE_TELLERS_STMT, getSchemaPrefix());
+            case "bench_accounts" -> String.format(GENERATE_ACCOUNTS_STMT, getSchemaPrefix());
+            default -> throw new AssertionError("Unreachable code branch");
+        };
+    }
+
     @Override
     public void analyzeTables(Connection c) throws SQLException {
         log.info("Analyzing...");
@@ -121,4 +269,57 @@ public class PostgresStrategy extends DatabaseStrategy {
         return conf.isNologging() ? "UNLOGGED" : "";
     }
 
+    // COPY text format encoder for rows made of non negative numbers, avoids creating a string per row
+    private static class CopyBuffer {
+
+        private static final int SIZE = 64 * 1024;
+        // longest possible row is three 19 digits numbers plus separators
+        private static final int MAX_ROW_LENGTH = 3 * 20;
+
+        private final byte[] buf = new byte[SIZE];
+        private final byte[] digits = new byte[20];
+        private int pos;
+
+        void putRow(CopyIn ci, long v1, long v2) throws SQLException {
+            if (pos > SIZE - MAX_ROW_LENGTH) {
+                flush(ci);
+            }
+            putLong(v1);
+            buf[pos++] = '\t';
+            putLong(v2);
+            buf[pos++] = '\n';
+        }
+
+        void putRow(CopyIn ci, long v1, long v2, long v3) throws SQLException {
+            if (pos > SIZE - MAX_ROW_LENGTH) {
+                flush(ci);
+            }
+            putLong(v1);
+            buf[pos++] = '\t';
+            putLong(v2);
+            buf[pos++] = '\t';
+            putLong(v3);
+            buf[pos++] = '\n';
+        }
+
+        private void putLong(long value) {
+            int len = 0;
+            do {
+                digits[len++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            while (len > 0) {
+                buf[pos++] = digits[--len];
+            }
+        }
+
+        void flush(CopyIn ci) throws SQLException {
+            if (pos > 0) {
+                ci.writeToCopy(buf, 0, pos);
+                pos = 0;
+            }
+        }
+
+    }
+
 }
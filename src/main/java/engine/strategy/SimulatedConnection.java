@@ -0,0 +1,100 @@
+package engine.strategy;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+// connection of the in-process engines, implementing only the handful of calls the benchmark makes: statements are
+// handed to the strategy together with their parameters, anything else is not supported
+class SimulatedConnection extends UnsupportedJdbcConnection {
+
+    private final NoopStrategy str;
+    // row locks taken by the current transaction, released at commit or rollback
+    private final List<Semaphore> locks = new ArrayList<>();
+    private boolean autoCommit = true;
+    private int isolation = Connection.TRANSACTION_READ_COMMITTED;
+    private boolean closed;
+
+    SimulatedConnection(NoopStrategy str) {
+        this.str = str;
+    }
+
+    // statements of a closed connection fail as real ones would
+    void execute(String sql, long[] params) throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection is closed", "08003");
+        }
+        str.execute(locks, sql, params);
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        return new SimulatedStatement(this, null);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return new SimulatedStatement(this, sql);
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        this.autoCommit = autoCommit;
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        return autoCommit;
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        str.commit(locks);
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        str.rollback(locks);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        str.release(locks);
+        closed = true;
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed;
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        this.isolation = level;
+    }
+
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        return isolation;
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return null;
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+    }
+
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        return !closed;
+    }
+
+}
@@ -0,0 +1,84 @@
+package engine.strategy;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+// round trip time of the simulated engine, as given on the command line in milliseconds, e.g. fixed:1 or lognormal:1:0.5
+@Getter
+public class SimulatedLatency implements Serializable {
+
+    public enum Type {
+        FIXED(1),
+        UNIFORM(2),
+        EXPONENTIAL(1),
+        LOGNORMAL(2);
+
+        private final int parameterCount;
+
+        Type(int parameterCount) {
+            this.parameterCount = parameterCount;
+        }
+    }
+
+    public static final SimulatedLatency DEFAULT = new SimulatedLatency(Type.FIXED, new double[]{1});
+
+    private final Type type;
+    private final double[] parameters;
+
+    public SimulatedLatency(Type type, double[] parameters) {
+        if (parameters.length != type.parameterCount) {
+            throw new IllegalArgumentException(String.format("%s requires %d parameters", type.toString().toLowerCase(Locale.ROOT), type.parameterCount));
+        }
+        if (Arrays.stream(parameters).anyMatch(p -> p < 0)) {
+            throw new IllegalArgumentException("parameters cannot be negative");
+        }
+        if (type == Type.UNIFORM && parameters[0] > parameters[1]) {
+            throw new IllegalArgumentException("uniform lower bound greater than upper bound");
+        }
+        this.type = type;
+        this.parameters = parameters;
+    }
+
+    // type name followed by colon separated parameters: fixed:value, uniform:min:max, exponential:mean, lognormal:median:sigma
+    public static SimulatedLatency parse(String spec) {
+        String[] tokens = spec.trim().split(":");
+        Type type;
+        try {
+            type = Type.valueOf(tokens[0].trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("unknown latency distribution " + tokens[0]);
+        }
+        double[] parameters = new double[tokens.length - 1];
+        for (int i = 1; i < tokens.length; i++) {
+            try {
+                parameters[i - 1] = Double.parseDouble(tokens[i].trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("invalid latency parameter " + tokens[i]);
+            }
+        }
+        return new SimulatedLatency(type, parameters);
+    }
+
+    public long nextNano() {
+        double ms = switch (type) {
+            case FIXED -> parameters[0];
+            case UNIFORM -> parameters[0] + ThreadLocalRandom.current().nextDouble() * (parameters[1] - parameters[0]);
+            case EXPONENTIAL -> -Math.log(1d - ThreadLocalRandom.current().nextDouble()) * parameters[0];
+            case LOGNORMAL -> parameters[0] * Math.exp(parameters[1] * ThreadLocalRandom.current().nextGaussian());
+        };
+        return (long) (ms * 1_000_000d);
+    }
+
+    @Override
+    public String toString() {
+        return type.toString().toLowerCase(Locale.ROOT) + Arrays.stream(parameters)
+                .mapToObj(p -> ":" + (p == Math.rint(p) ? String.valueOf((long) p) : String.valueOf(p)))
+                .collect(Collectors.joining());
+    }
+
+}
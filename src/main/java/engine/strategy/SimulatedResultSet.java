@@ -0,0 +1,79 @@
+package engine.strategy;
+
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+// result of every query of a simulated statement: a single row of zeros, rewound each time the statement runs
+class SimulatedResultSet extends UnsupportedJdbcResultSet {
+
+    private final SimulatedStatement statement;
+    // rows not yet read, one after a query and none once closed
+    private int remaining;
+    private boolean closed = true;
+
+    SimulatedResultSet(SimulatedStatement statement) {
+        this.statement = statement;
+    }
+
+    void reset() {
+        remaining = 1;
+        closed = false;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        if (remaining == 0) {
+            return false;
+        }
+        remaining--;
+        return true;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        remaining = 0;
+        closed = true;
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        return false;
+    }
+
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+        return 0;
+    }
+
+    @Override
+    public long getLong(int columnIndex) throws SQLException {
+        return 0L;
+    }
+
+    // a boxed zero is a cached instance, reading columns allocates nothing
+    @Override
+    public Object getObject(int columnIndex) throws SQLException {
+        return 0L;
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return null;
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+    }
+
+    @Override
+    public Statement getStatement() throws SQLException {
+        return statement;
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed;
+    }
+
+}
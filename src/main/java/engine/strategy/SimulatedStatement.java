@@ -0,0 +1,157 @@
+package engine.strategy;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.util.Arrays;
+
+// statement of the in-process engines, also standing for plain statements: integer parameters are kept in primitive slots,
+// queries answer a single row of zeros through the same result set every time, updates report a single row
+class SimulatedStatement extends UnsupportedJdbcStatement {
+
+    private final SimulatedConnection connection;
+    private final String sql;
+    private final boolean query;
+    private final SimulatedResultSet resultSet;
+    private long[] params = new long[4];
+    // as JDBC dictates, -1 once there are no more results
+    private int updateCount = -1;
+    private boolean closed;
+
+    SimulatedStatement(SimulatedConnection connection, String sql) {
+        this.connection = connection;
+        this.sql = sql;
+        this.query = sql != null && isQuery(sql);
+        this.resultSet = new SimulatedResultSet(this);
+    }
+
+    // without allocating, statements may be prepared for every transaction
+    private static boolean isQuery(String sql) {
+        int start = 0;
+        while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) {
+            start++;
+        }
+        return sql.regionMatches(true, start, "SELECT", 0, 6);
+    }
+
+    private boolean run(String text, boolean isQuery) throws SQLException {
+        if (closed) {
+            throw new SQLException("Statement is closed");
+        }
+        connection.execute(text, params);
+        if (isQuery) {
+            resultSet.reset();
+            updateCount = -1;
+        } else {
+            resultSet.close();
+            updateCount = 1;
+        }
+        return isQuery;
+    }
+
+    private void setParam(int parameterIndex, long x) {
+        if (parameterIndex > params.length) {
+            params = Arrays.copyOf(params, Math.max(parameterIndex, params.length * 2));
+        }
+        params[parameterIndex - 1] = x;
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        run(sql, query);
+        return resultSet;
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+        run(sql, query);
+        return 1;
+    }
+
+    @Override
+    public long executeLargeUpdate() throws SQLException {
+        run(sql, query);
+        return 1L;
+    }
+
+    @Override
+    public boolean execute() throws SQLException {
+        return run(sql, query);
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        run(sql, isQuery(sql));
+        return resultSet;
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        run(sql, isQuery(sql));
+        return 1;
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        return run(sql, isQuery(sql));
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        setParam(parameterIndex, x);
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        setParam(parameterIndex, x);
+    }
+
+    @Override
+    public void clearParameters() throws SQLException {
+        Arrays.fill(params, 0L);
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return resultSet.isClosed() ? null : resultSet;
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        return updateCount;
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        resultSet.close();
+        updateCount = -1;
+        return false;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection;
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return null;
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+    }
+
+    @Override
+    public void close() throws SQLException {
+        resultSet.close();
+        closed = true;
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed;
+    }
+
+}
@@ -0,0 +1,143 @@
+package engine.strategy;
+
+import engine.dto.BenchConf;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static engine.dto.BenchConf.Protocol.PIPELINE;
+import static engine.dto.BenchConf.Protocol.PROCEDURE;
+
+// in-process engine where every round trip takes a time drawn from a known distribution, so that reported latencies can be checked
+// against it; optionally the built-in updates take row locks held until the end of the transaction, so that skewed keys contend
+public class SimulatedStrategy extends NoopStrategy {
+
+    // branches and tellers get a lock per row up to this many rows, accounts are striped over as many locks
+    private static final int MAX_LOCKS = 65536;
+    // locks are always taken in the same order and cannot deadlock, waiting this long means a lock was never released
+    private static final long LOCK_TIMEOUT_SEC = 60;
+    // parking overshoots by tens of microseconds, the last stretch of a round trip is spun instead
+    private static final long SPIN_NANO = 100_000;
+
+    private final SimulatedLatency latency;
+    // lock table of each locking statement, keyed by its text, empty when row locks are disabled
+    private final Map<String, Semaphore[]> lockTables = new HashMap<>();
+    private Semaphore[] accountLocks;
+    private Semaphore[] tellerLocks;
+    private Semaphore[] branchLocks;
+    // single call statement of the protocol in use, null with plain statements or without row locks
+    private String procedureCall;
+    private String pipeline;
+
+    public SimulatedStrategy(BenchConf conf) throws ClassNotFoundException {
+        super(conf);
+        this.latency = conf.getSimulatedLatency();
+        if (conf.isSimulatedLocks()) {
+            accountLocks = newLocks(conf.getScale() * 100000L);
+            tellerLocks = newLocks(conf.getScale() * 10L);
+            branchLocks = newLocks(conf.getScale());
+            lockTables.put(String.format(UPDATE_ACCOUNTS_STMT, getSchemaPrefix()), accountLocks);
+            lockTables.put(String.format(UPDATE_TELLERS_STMT, getSchemaPrefix()), tellerLocks);
+            lockTables.put(String.format(UPDATE_BRANCHES_STMT, getSchemaPrefix()), branchLocks);
+            if (conf.getProtocol() == PROCEDURE) {
+                procedureCall = getProcedureCallStatement();
+            } else if (conf.getProtocol() == PIPELINE) {
+                pipeline = getPipelineStatement();
+            }
+        }
+    }
+
+    private static Semaphore[] newLocks(long rows) {
+        Semaphore[] ret = new Semaphore[(int) Math.min(rows, MAX_LOCKS)];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = new Semaphore(1);
+        }
+        return ret;
+    }
+
+    @Override
+    public Connection doConnect() throws SQLException {
+        roundTrip();
+        return super.doConnect();
+    }
+
+    @Override
+    void execute(List<Semaphore> locks, String sql, long[] params) throws SQLException {
+        if (accountLocks != null) {
+            Semaphore[] table = lockTables.get(sql);
+            if (table != null) {
+                // the key is the last parameter of the update
+                lock(locks, table, params[1]);
+            } else if (sql.equals(procedureCall)) {
+                lockAndRun(locks, params[2], params[1], params[0]);
+                return;
+            } else if (sql.equals(pipeline)) {
+                lockAndRun(locks, params[1], params[4], params[6]);
+                return;
+            }
+        }
+        roundTrip();
+    }
+
+    // with procedure and pipeline protocols the whole transaction is a single round trip, its locks are held for that long only
+    private void lockAndRun(List<Semaphore> locks, long aid, long tid, long bid) throws SQLException {
+        lock(locks, accountLocks, aid);
+        lock(locks, tellerLocks, tid);
+        lock(locks, branchLocks, bid);
+        try {
+            roundTrip();
+        } finally {
+            release(locks);
+        }
+    }
+
+    @Override
+    void commit(List<Semaphore> locks) throws SQLException {
+        try {
+            roundTrip();
+        } finally {
+            release(locks);
+        }
+    }
+
+    @Override
+    void rollback(List<Semaphore> locks) throws SQLException {
+        try {
+            roundTrip();
+        } finally {
+            release(locks);
+        }
+    }
+
+    private static void lock(List<Semaphore> locks, Semaphore[] table, long key) throws SQLException {
+        Semaphore lock = table[(int) ((key - 1) % table.length)];
+        try {
+            if (!lock.tryAcquire(LOCK_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                throw new SQLException("Simulated lock wait timed out", "55P03");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a simulated lock", ex);
+        }
+        locks.add(lock);
+    }
+
+    // parking may also return early, the whole drawn time is waited anyway
+    private void roundTrip() {
+        long deadline = System.nanoTime() + latency.nextNano();
+        long wait;
+        while ((wait = deadline - System.nanoTime()) > SPIN_NANO) {
+            LockSupport.parkNanos(wait - SPIN_NANO);
+        }
+        while (deadline - System.nanoTime() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+}
@@ -0,0 +1,237 @@
+package engine.strategy;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+// every call of Connection failing as unsupported, the simulated connection overrides the few the benchmark makes
+abstract class UnsupportedJdbcConnection implements Connection {
+
+    static SQLFeatureNotSupportedException unsupported() {
+        return new SQLFeatureNotSupportedException("Not supported by simulated connections");
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        throw new SQLClientInfoException();
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        throw new SQLClientInfoException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public String getCatalog() throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Clob createClob() throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Blob createBlob() throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public NClob createNClob() throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Properties getClientInfo() throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        throw unsupported();
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        throw unsupported();
+    }
+
+}
@@ -2,8 +2,11 @@ package engine.utils;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.StringJoiner;
 import java.util.concurrent.TimeUnit;
 
+import static engine.utils.MetricProvider.DISTRIBUTION_BOUNDS;
+
 public class CommonUtils {
 
     public static String smartElapsed(long elapsedNano) {
@@ -22,4 +25,39 @@ public class CommonUtils {
         }
     }
 
+    public static BigDecimal round(double value) {
+        return Double.isFinite(value) ? BigDecimal.valueOf(value).setScale(3, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+    }
+
+    public static String formatPercentiles(MetricProvider mp) {
+        StringJoiner sj = new StringJoiner(", ");
+        sj.add("min " + round(mp.getMin()) + " ms");
+        for (int i = 0; i < mp.getPercentiles().size(); i++) {
+            sj.add("p" + BigDecimal.valueOf(mp.getPercentiles().get(i)).stripTrailingZeros().toPlainString() + " " + round(mp.getPercentileValues()[i]) + " ms");
+        }
+        sj.add("max " + round(mp.getMax()) + " ms");
+        return sj.toString();
+    }
+
+    public static String formatDistributionRange(int idx) {
+        if (idx == 0) {
+            return "< " + BigDecimal.valueOf(DISTRIBUTION_BOUNDS[0]).stripTrailingZeros().toPlainString() + " ms";
+        } else if (idx == DISTRIBUTION_BOUNDS.length) {
+            return ">= " + BigDecimal.valueOf(DISTRIBUTION_BOUNDS[idx - 1]).stripTrailingZeros().toPlainString() + " ms";
+        } else {
+            return BigDecimal.valueOf(DISTRIBUTION_BOUNDS[idx - 1]).stripTrailingZeros().toPlainString() + " - "
+                    + BigDecimal.valueOf(DISTRIBUTION_BOUNDS[idx]).stripTrailingZeros().toPlainString() + " ms";
+        }
+    }
+
+    public static String formatDistribution(MetricProvider mp) {
+        StringJoiner sj = new StringJoiner(", ");
+        for (int i = 0; i < mp.getDistribution().length; i++) {
+            if (mp.getDistribution()[i] > 0) {
+                sj.add(formatDistributionRange(i) + " " + round(100d * mp.getDistribution()[i] / mp.getCount()) + "%");
+            }
+        }
+        return sj.toString();
+    }
+
 }
@@ -0,0 +1,31 @@
+package engine.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// occurrences of each kind of database error, shared by all clients since errors are rare
+public class ErrorCounter {
+
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    public void record(String error) {
+        counts.computeIfAbsent(error, k -> new LongAdder()).increment();
+    }
+
+    public void record(String error, long count) {
+        counts.computeIfAbsent(error, k -> new LongAdder()).add(count);
+    }
+
+    public void reset() {
+        counts.clear();
+    }
+
+    public Map<String, Long> getCounts() {
+        Map<String, Long> ret = new TreeMap<>();
+        counts.forEach((k, v) -> ret.put(k, v.sum()));
+        return ret;
+    }
+
+}
@@ -0,0 +1,117 @@
+package engine.utils;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LatencyAggregator {
+
+    private final List<LatencyRecorder> recorders;
+    private final List<LatencyHistogram> histograms;
+    @Getter
+    private final LatencyHistogram total = new LatencyHistogram();
+    // samples collected but not yet handed over as an interval
+    private final LatencyHistogram pending = new LatencyHistogram();
+    @Getter
+    private long errors;
+    @Getter
+    private long intervalErrors;
+    @Getter
+    private long skipped;
+    @Getter
+    private long intervalSkipped;
+    @Getter
+    private long retries;
+    @Getter
+    private long intervalRetries;
+    private long pendingErrors;
+    private long pendingSkipped;
+    private long pendingRetries;
+    private final LatencyHistogram scratch = new LatencyHistogram();
+    // counters of recorders are never reset, these are their values when the aggregator was last reset
+    private long errorsOffset;
+    private long skippedOffset;
+    private long retriesOffset;
+
+    public LatencyAggregator(int size) {
+        recorders = new ArrayList<>(size);
+        histograms = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            recorders.add(new LatencyRecorder());
+            histograms.add(new LatencyHistogram());
+        }
+    }
+
+    public LatencyRecorder getRecorder(int idx) {
+        return recorders.get(idx);
+    }
+
+    public LatencyHistogram getHistogram(int idx) {
+        return histograms.get(idx);
+    }
+
+    // merges whatever workers recorded since the previous call into per-worker and total histograms
+    public synchronized void collect() {
+        long newErrors = 0;
+        long newSkipped = 0;
+        long newRetries = 0;
+        for (int i = 0; i < recorders.size(); i++) {
+            scratch.reset();
+            recorders.get(i).drainInto(scratch);
+            histograms.get(i).add(scratch);
+            total.add(scratch);
+            pending.add(scratch);
+            newErrors += recorders.get(i).getErrors();
+            newSkipped += recorders.get(i).getSkipped();
+            newRetries += recorders.get(i).getRetries();
+        }
+        pendingErrors += newErrors - errorsOffset - errors;
+        errors = newErrors - errorsOffset;
+        pendingSkipped += newSkipped - skippedOffset - skipped;
+        skipped = newSkipped - skippedOffset;
+        pendingRetries += newRetries - retriesOffset - retries;
+        retries = newRetries - retriesOffset;
+    }
+
+    // hands over into target every sample collected since the previous call, whoever triggered the collection,
+    // interval errors, skipped and retried transactions are updated accordingly
+    public synchronized void takeInterval(LatencyHistogram target) {
+        collect();
+        target.reset();
+        target.add(pending);
+        pending.reset();
+        intervalErrors = pendingErrors;
+        intervalSkipped = pendingSkipped;
+        intervalRetries = pendingRetries;
+        pendingErrors = 0;
+        pendingSkipped = 0;
+        pendingRetries = 0;
+    }
+
+    // total number of samples measured so far, for callers that only need the throughput
+    public synchronized long collectCount() {
+        collect();
+        return total.getCount();
+    }
+
+    // discards everything recorded so far, e.g. at the end of warm-up, samples not yet handed over as an interval included
+    public synchronized void reset() {
+        collect();
+        total.reset();
+        pending.reset();
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        pendingErrors = 0;
+        pendingSkipped = 0;
+        pendingRetries = 0;
+        errorsOffset += errors;
+        skippedOffset += skipped;
+        retriesOffset += retries;
+        errors = 0;
+        skipped = 0;
+        retries = 0;
+    }
+
+}
@@ -0,0 +1,163 @@
+package engine.utils;
+
+import lombok.Getter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class LatencyHistogram {
+
+    // values below 128 nsec are stored exactly, above that every power of two is split into 64 linear sub-buckets,
+    // so relative error stays below 1.6% with a fixed memory footprint; not thread safe, see LatencyRecorder
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+    // values up to 2^42 nsec (about 73 minutes), larger ones are clamped into the last bucket
+    private static final int MAX_VALUE_BITS = 42;
+    private static final long MAX_TRACKABLE_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT + SUB_BUCKET_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    @Getter
+    private long count;
+    @Getter
+    private long sum;
+    @Getter
+    private double sumOfSquares;
+    private long min = Long.MAX_VALUE;
+    @Getter
+    private long max;
+
+    public void record(long valueNano) {
+        if (valueNano < 0) {
+            valueNano = 0;
+        }
+        counts[bucketIndex(Math.min(valueNano, MAX_TRACKABLE_VALUE))]++;
+        count++;
+        sum += valueNano;
+        sumOfSquares += (double) valueNano * (double) valueNano;
+        if (valueNano < min) {
+            min = valueNano;
+        }
+        if (valueNano > max) {
+            max = valueNano;
+        }
+    }
+
+    public void add(LatencyHistogram other) {
+        if (other.count == 0) {
+            return;
+        }
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        sumOfSquares += other.sumOfSquares;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0L);
+        count = 0;
+        sum = 0;
+        sumOfSquares = 0d;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    // sparse encoding for the wire: summary figures followed by non empty buckets only
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeLong(sum);
+        out.writeDouble(sumOfSquares);
+        out.writeLong(min);
+        out.writeLong(max);
+        int buckets = 0;
+        for (long c : counts) {
+            if (c != 0) {
+                buckets++;
+            }
+        }
+        out.writeInt(buckets);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts[i] != 0) {
+                out.writeShort(i);
+                out.writeLong(counts[i]);
+            }
+        }
+    }
+
+    // adds to this histogram one written by write()
+    public void read(DataInput in) throws IOException {
+        count += in.readLong();
+        sum += in.readLong();
+        sumOfSquares += in.readDouble();
+        min = Math.min(min, in.readLong());
+        max = Math.max(max, in.readLong());
+        int buckets = in.readInt();
+        for (int i = 0; i < buckets; i++) {
+            counts[in.readUnsignedShort()] += in.readLong();
+        }
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100d) / 100d * (double) count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(bucketHighestValue(i), max));
+            }
+        }
+        return max;
+    }
+
+    // number of samples whose bucket starts in [fromNano, toNano), so that adjacent ranges never overlap
+    public long getCountBetween(long fromNano, long toNano) {
+        int i = bucketIndex(Math.min(fromNano, MAX_TRACKABLE_VALUE));
+        if (bucketLowestValue(i) < fromNano) {
+            i++;
+        }
+        long ret = 0;
+        for (; i < BUCKET_COUNT && bucketLowestValue(i) < toNano; i++) {
+            ret += counts[i];
+        }
+        return ret;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+    }
+
+    static long bucketLowestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+        return (long) (index - shift * SUB_BUCKET_HALF_COUNT) << shift;
+    }
+
+    static long bucketHighestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+        return bucketLowestValue(index) + (1L << shift) - 1;
+    }
+
+}
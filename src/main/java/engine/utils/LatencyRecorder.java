@@ -0,0 +1,101 @@
+package engine.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LatencyRecorder {
+
+    // double buffered histogram: writers never block, the reader swaps buffers and waits for in-flight writers
+    // to leave the old one before reading it (same phase flip scheme used by HdrHistogram's WriterReaderPhaser)
+    private final AtomicLong startEpoch = new AtomicLong();
+    private final AtomicLong evenEndEpoch = new AtomicLong();
+    private final AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+    private volatile LatencyHistogram active = new LatencyHistogram();
+    private LatencyHistogram inactive = new LatencyHistogram();
+    // failed, skipped and retried transactions, single writer so a plain volatile is enough
+    private volatile long errors;
+    private volatile long skipped;
+    private volatile long retries;
+
+    public void record(long valueNano) {
+        long epoch = startEpoch.getAndIncrement();
+        try {
+            active.record(valueNano);
+        } finally {
+            if (epoch < 0) {
+                oddEndEpoch.getAndIncrement();
+            } else {
+                evenEndEpoch.getAndIncrement();
+            }
+        }
+    }
+
+    // same as record(), for samples already gathered elsewhere, e.g. by a remote agent
+    public void record(LatencyHistogram histogram) {
+        long epoch = startEpoch.getAndIncrement();
+        try {
+            active.add(histogram);
+        } finally {
+            if (epoch < 0) {
+                oddEndEpoch.getAndIncrement();
+            } else {
+                evenEndEpoch.getAndIncrement();
+            }
+        }
+    }
+
+    public void recordCounts(long errors, long skipped, long retries) {
+        this.errors += errors;
+        this.skipped += skipped;
+        this.retries += retries;
+    }
+
+    public void recordError() {
+        errors++;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public void recordSkipped() {
+        skipped++;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public void recordRetry() {
+        retries++;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    // moves everything recorded since the previous call into target
+    public synchronized void drainInto(LatencyHistogram target) {
+        inactive.reset();
+        LatencyHistogram old = active;
+        active = inactive;
+        flipPhase();
+        target.add(old);
+        inactive = old;
+    }
+
+    private void flipPhase() {
+        boolean nextPhaseIsEven = startEpoch.get() < 0;
+        long initialStartValue = nextPhaseIsEven ? 0 : Long.MIN_VALUE;
+        if (nextPhaseIsEven) {
+            evenEndEpoch.set(initialStartValue);
+        } else {
+            oddEndEpoch.set(initialStartValue);
+        }
+        long startValueAtFlip = startEpoch.getAndSet(initialStartValue);
+        AtomicLong previousEndEpoch = nextPhaseIsEven ? oddEndEpoch : evenEndEpoch;
+        while (previousEndEpoch.get() != startValueAtFlip) {
+            Thread.onSpinWait();
+        }
+    }
+
+}
@@ -2,12 +2,15 @@ package engine.utils;
 
 import lombok.Getter;
 
-import java.util.ArrayList;
+import java.util.List;
 
 public class MetricProvider {
 
+    // upper bounds (exclusive) of the latency distribution ranges, in milliseconds
+    public static final double[] DISTRIBUTION_BOUNDS = {0.1d, 0.2d, 0.5d, 1d, 2d, 5d, 10d, 20d, 50d, 100d, 200d, 500d, 1_000d, 2_000d, 5_000d, 10_000d};
+
     @Getter
-    private final int count;
+    private final long count;
     @Getter
     private final double sum;
     @Getter
@@ -16,42 +19,70 @@ public class MetricProvider {
     private final double variance;
     @Getter
     private final double stddev;
+    @Getter
+    private final double min;
+    @Getter
+    private final double max;
+    @Getter
+    private final List<Double> percentiles;
+    @Getter
+    private final double[] percentileValues;
+    @Getter
+    private final long[] distribution;
 
-    public MetricProvider(ArrayList<Double> timings) {
-        if (timings.isEmpty()) {
+    public MetricProvider(LatencyHistogram histogram, List<Double> percentiles) {
+        this.percentiles = percentiles;
+        percentileValues = new double[percentiles.size()];
+        distribution = new long[DISTRIBUTION_BOUNDS.length + 1];
+        if (histogram.getCount() == 0) {
             count = 0;
             sum = 0d;
             mean = 0;
             variance = 0d;
             stddev = 0d;
+            min = 0d;
+            max = 0d;
             return;
         }
 
         // population size
-        count = timings.size();
+        count = histogram.getCount();
 
-        // sum
-        double _sum = 0d;
-        for (double i : timings) {
-            _sum += i;
-        }
-        sum = _sum;
+        // sum, in milliseconds
+        sum = toMillis(histogram.getSum());
 
         // mean
-        mean = sum / ((double) timings.size());
+        mean = sum / ((double) count);
 
         // variance and stddev, only if more than one sample
         if (count > 1) {
-            double _sum2 = 0d;
-            for (double i : timings) {
-                _sum2 += (i - mean) * (i - mean);
-            }
-            variance = _sum2 / ((double) (timings.size() - 1));
+            double sum2 = histogram.getSumOfSquares() / 1_000_000_000_000d;
+            variance = Math.max(0d, (sum2 - sum * mean) / ((double) (count - 1)));
             stddev = Math.sqrt(variance);
         } else {
             variance = 0d;
             stddev = 0d;
         }
+
+        // extremes and percentiles, walking buckets rather than samples
+        min = toMillis(histogram.getMin());
+        max = toMillis(histogram.getMax());
+        for (int i = 0; i < percentiles.size(); i++) {
+            percentileValues[i] = toMillis(histogram.getValueAtPercentile(percentiles.get(i)));
+        }
+
+        // distribution
+        long lowerBound = 0;
+        for (int i = 0; i < DISTRIBUTION_BOUNDS.length; i++) {
+            long upperBound = (long) (DISTRIBUTION_BOUNDS[i] * 1_000_000d);
+            distribution[i] = histogram.getCountBetween(lowerBound, upperBound);
+            lowerBound = upperBound;
+        }
+        distribution[DISTRIBUTION_BOUNDS.length] = histogram.getCountBetween(lowerBound, Long.MAX_VALUE);
+    }
+
+    private static double toMillis(long nano) {
+        return ((double) nano) / 1_000_000d;
     }
 
 }
@@ -0,0 +1,74 @@
+package engine.utils;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PinningMonitor implements AutoCloseable {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    // same threshold the JDK uses by default for this event
+    public static final Duration THRESHOLD = Duration.ofMillis(20);
+
+    private final RecordingStream rs = new RecordingStream();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder durationNano = new LongAdder();
+    private final Map<String, LongAdder> sites = new ConcurrentHashMap<>();
+
+    public PinningMonitor() {
+        rs.enable(PINNED_EVENT).withThreshold(THRESHOLD).withStackTrace();
+        rs.onEvent(PINNED_EVENT, this::onPinned);
+        rs.startAsync();
+    }
+
+    private void onPinned(RecordedEvent e) {
+        count.increment();
+        durationNano.add(e.getDuration().toNanos());
+        sites.computeIfAbsent(pinningSite(e), k -> new LongAdder()).increment();
+    }
+
+    // first frame outside the JDK, that is the application or driver code holding the monitor
+    private static String pinningSite(RecordedEvent e) {
+        if (e.getStackTrace() == null) {
+            return "unknown";
+        }
+        for (RecordedFrame f : e.getStackTrace().getFrames()) {
+            String className = f.getMethod().getType().getName();
+            if (!className.startsWith("java.") && !className.startsWith("jdk.") && !className.startsWith("sun.")) {
+                return className + "." + f.getMethod().getName() + ":" + f.getLineNumber();
+            }
+        }
+        return "unknown";
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getDurationNano() {
+        return durationNano.sum();
+    }
+
+    public List<String> getTopSites(int limit) {
+        return sites.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, LongAdder> en) -> en.getValue().sum()).reversed())
+                .limit(limit)
+                .map(en -> en.getKey() + " (" + en.getValue().sum() + " events)")
+                .toList();
+    }
+
+    // waits for pending events to be delivered, collected figures stay available afterwards
+    @Override
+    public void close() {
+        rs.stop();
+        rs.close();
+    }
+
+}
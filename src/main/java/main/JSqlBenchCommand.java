@@ -1,24 +1,52 @@
 package main;
 
 import engine.BenchEngine;
+import engine.distribution.KeyDistribution;
 import engine.dto.BenchConf;
 import engine.dto.BenchConf.DbEngine;
+import engine.dto.BenchConf.Isolation;
+import engine.dto.BenchConf.LoadMethod;
+import engine.dto.BenchConf.Output;
+import engine.dto.BenchConf.Protocol;
+import engine.dto.BenchConf.QueryMode;
+import engine.dto.BenchConf.ThreadModel;
+import engine.script.ScriptParser;
+import engine.script.WorkloadScript;
+import engine.strategy.SimulatedLatency;
 import lombok.extern.log4j.Log4j2;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParentCommand;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
+import static engine.dto.BenchConf.DbEngine.NOOP;
 import static engine.dto.BenchConf.DbEngine.ORACLE;
 import static engine.dto.BenchConf.DbEngine.POSTGRES;
+import static engine.dto.BenchConf.DbEngine.SIMULATED;
+import static engine.dto.BenchConf.Isolation.REPEATABLE_READ;
+import static engine.dto.BenchConf.LoadMethod.COPY;
+import static engine.dto.BenchConf.LoadMethod.DIRECT;
+import static engine.dto.BenchConf.Protocol.STATEMENTS;
 
 @Log4j2
 @Command(name = "JSqlBench",
+        description = "Without a command, initializes the database, runs the benchmark and cleans up",
         sortOptions = false,
-        abbreviateSynopsis = true)
+        abbreviateSynopsis = true,
+        subcommands = {JSqlBenchCommand.InitCommand.class, JSqlBenchCommand.RunCommand.class, JSqlBenchCommand.CleanupCommand.class,
+                JSqlBenchCommand.AgentCommand.class})
 public class JSqlBenchCommand implements Callable<Integer> {
 
-    @Option(names = "--engine", required = true, description = "Database engine. Currently supported: Oracle and Postgres")
+    @Option(names = "--engine", required = true, description = "Database engine. Currently supported: Oracle and Postgres. "
+            + "Noop and simulated need no server: the first answers at once, measuring the ceiling of the client itself, the second waits a simulated round trip latency")
     private DbEngine engine;
 
     @Option(names = "--host", required = false, defaultValue = "localhost", description = "Database server's hostname (default: ${DEFAULT-VALUE})")
@@ -27,10 +55,10 @@ public class JSqlBenchCommand implements Callable<Integer> {
     @Option(names = "--port", required = false, description = "Database server's port (default: 1521 for Oracle and 5432 for Postgres)")
     private Integer port;
 
-    @Option(names = "--dbname", required = true, description = "Database or instance name (SID)")
+    @Option(names = "--dbname", required = false, description = "Database or instance name (SID), required by Oracle and Postgres")
     private String dbname;
 
-    @Option(names = "--username", required = true, description = "Username used to log in")
+    @Option(names = "--username", required = false, description = "Username used to log in, required by Oracle and Postgres")
     private String username;
 
     @Option(names = "--password", required = false, description = "Password used to log in")
@@ -51,9 +79,69 @@ public class JSqlBenchCommand implements Callable<Integer> {
                     + "else you'll mostly be measuring update contention (default: ${DEFAULT-VALUE})")
     private int scale;
 
+    @Option(names = "--load-method", required = false, defaultValue = "insert",
+            description = "How tables are populated. Insert: batched INSERT statements. Copy: COPY FROM STDIN, Postgres only. "
+                    + "Direct: direct-path INSERT /*+ APPEND_VALUES */ with array binds, Oracle only. "
+                    + "Server: rows are generated server side (generate_series or CONNECT BY), nothing is sent by the client (default: ${DEFAULT-VALUE})")
+    private LoadMethod loadMethod;
+
+    @Option(names = "--loaders", required = false, defaultValue = "1",
+            description = "Number of parallel connections used to populate tables, each one loading its own scale range (default: ${DEFAULT-VALUE})")
+    private int loaders;
+
+    @Option(names = "--batch-size", required = false, defaultValue = "100000", description = "Rows sent to the database in a single batch while populating tables (default: ${DEFAULT-VALUE})")
+    private int batchSize;
+
+    @Option(names = "--commit-interval", required = false, defaultValue = "100000", description = "Rows inserted between two commits while populating tables (default: ${DEFAULT-VALUE})")
+    private int commitInterval;
+
+    @Option(names = "--parallel-indexes", required = false, defaultValue = "false", description = "Build the indexes of all tables concurrently, each one on its own connection")
+    private boolean parallelIndexes;
+
+    @Option(names = "--truncate-history", required = false, defaultValue = "false", description = "When running on an existing dataset, empty the history table first")
+    private boolean truncateHistory;
+
     @Option(names = "--concurrency", required = false, defaultValue = "1", description = "Number of concurrent clients simulated (default: ${DEFAULT-VALUE})")
     private Integer concurrency;
 
+    @Option(names = "--connections", required = false, defaultValue = "0",
+            description = "Share this many connections among the clients, each transaction borrows one from a pool and gives it back when done. "
+                    + "Time spent waiting for a connection is reported separately from latency (default: one connection per client)")
+    private int connections;
+
+    @Option(names = "--concurrency-sweep", required = false,
+            description = "Run the benchmark once per concurrency level on the same dataset, then show a summary table. "
+                    + "Either a comma separated list (e.g. 1,2,4,8) or a range doubled at every step (e.g. 1..512)")
+    private String concurrencySweep;
+
+    @Option(names = "--sweep-stop-drop", required = false, defaultValue = "0",
+            description = "Stop the concurrency sweep as soon as throughput drops by this percentage below the best level (default: never)")
+    private double sweepStopDrop;
+
+    @Option(names = "--warmup", required = false, defaultValue = "0", description = "Run the workload for this many seconds before measuring, discarding results (default: ${DEFAULT-VALUE})")
+    private int warmup;
+
+    @Option(names = "--steady-state", required = false, defaultValue = "0",
+            description = "End the warm-up as soon as the coefficient of variation of throughput over the last 10 seconds falls below "
+                    + "this percentage, the warm-up time becomes the maximum allowed (default: disabled)")
+    private double steadyState;
+
+    @Option(names = "--cooldown", required = false, defaultValue = "0", description = "Pause for this many seconds between two concurrency sweep levels (default: ${DEFAULT-VALUE})")
+    private int cooldown;
+
+    @Option(names = "--thread-model", required = false, defaultValue = "platform",
+            description = "Run each client on a platform thread or on a virtual thread. Virtual threads allow simulating thousands of clients "
+                    + "from a small machine, pinning events of 20 ms or more are reported at the end (default: ${DEFAULT-VALUE})")
+    private ThreadModel threadModel;
+
+    @Option(names = "--agents", required = false, defaultValue = "0",
+            description = "Run the clients on this many agent processes, started with the agent command, instead of locally. "
+                    + "Agents start together and stream their latency histograms back, so that a single report is produced (default: local clients)")
+    private int agents;
+
+    @Option(names = "--agent-port", required = false, defaultValue = "9500", description = "Port agents connect to (default: ${DEFAULT-VALUE})")
+    private int agentPort;
+
     @Option(names = "--time", required = false, defaultValue = "300",
             description = "Run the test for this many seconds. Never believe any test that runs for only a few seconds, "
                     + "it is a good practice to make the run last at least a few minutes. "
@@ -63,11 +151,197 @@ public class JSqlBenchCommand implements Callable<Integer> {
     @Option(names = "--read-only", required = false, defaultValue = "false", description = "Simulate a read only worlkoad")
     private boolean readOnly;
 
+    @Option(names = "--script", required = false,
+            description = "Run a custom workload script instead of the built-in transaction, as file[@weight]. Repeat the option to run a weighted mix, "
+                    + "each script is a transaction of SQL statements with :variables defined by \\set name random(min, max)")
+    private List<String> scripts;
+
+    @Option(names = "--distribution", required = false, defaultValue = "uniform",
+            description = "Distribution of branch, teller and account ids: uniform, zipfian[:theta], gaussian[:threshold], exponential[:parameter] "
+                    + "or hotspot[:keys%%:accesses%%], e.g. zipfian:0.99 or hotspot:20:80 (default: ${DEFAULT-VALUE})")
+    private String distribution;
+
+    @Option(names = "--query-mode", required = false, defaultValue = "prepared",
+            description = "Prepared: statements are prepared once per connection and reused for the whole run. "
+                    + "Unprepared: statements are prepared and closed again in every transaction, useful to measure driver and parsing overhead (default: ${DEFAULT-VALUE})")
+    private QueryMode queryMode;
+
+    @Option(names = "--protocol", required = false, defaultValue = "statements",
+            description = "Statements: every statement of the transaction and the commit is a round trip of its own. "
+                    + "Procedure: the transaction is a single call to a stored procedure installed by init. "
+                    + "Pipeline: the statements and the commit are sent together without waiting for each other (default: ${DEFAULT-VALUE})")
+    private Protocol protocol;
+
+    @Option(names = "--reconnect", required = false, defaultValue = "0",
+            description = "Open a new connection every this many transactions, to measure connection setup cost as pgbench -C does (default: never)")
+    private int reconnect;
+
+    @Option(names = "--max-tries", required = false, defaultValue = "1",
+            description = "Run a transaction up to this many times when it fails with a serialization failure or a deadlock. "
+                    + "Other errors fail the transaction, only a lost connection stops the client (default: ${DEFAULT-VALUE})")
+    private int maxTries;
+
+    @Option(names = "--isolation", required = false, defaultValue = "default",
+            description = "Transaction isolation level of the clients: default, read_committed, repeatable_read or serializable. "
+                    + "Stronger levels abort more transactions, the abort rate is reported (default: database default)")
+    private Isolation isolation;
+
+    @Option(names = "--rate", required = false, defaultValue = "0",
+            description = "Throttle the whole benchmark to this many transactions per second, scheduled as a poisson process. "
+                    + "Latency is then measured from the scheduled start time, so that stalls are not hidden (default: unthrottled)")
+    private double rate;
+
+    @Option(names = "--latency-limit", required = false, defaultValue = "0",
+            description = "With --rate, skip transactions that are already later than this many milliseconds when they should start (default: no limit)")
+    private int latencyLimit;
+
+    @Option(names = "--progress", required = false, defaultValue = "60",
+            description = "Show throughput, latency and errors of the last interval every this many seconds, 0 to disable (default: ${DEFAULT-VALUE})")
+    private int progress;
+
+    @Option(names = "--report-per-command", required = false, defaultValue = "false",
+            description = "Time every statement and the commit on its own, reporting their latency at the end and at every progress interval")
+    private boolean reportPerCommand;
+
+    @Option(names = "--output", required = false, defaultValue = "none",
+            description = "Also write results to a file as json or csv: configuration, client metadata, progress intervals, final figures, "
+                    + "per client results and errors. Intervals are written as they come, at the --progress pace (default: ${DEFAULT-VALUE})")
+    private Output output;
+
+    @Option(names = "--output-file", required = false, description = "File to write structured results to (default: jsqlbench-result.json or .csv)")
+    private String outputFile;
+
+    @Option(names = "--percentiles", required = false, split = ",", defaultValue = "50,90,99,99.9", description = "Comma separated list of latency percentiles to report (default: ${DEFAULT-VALUE})")
+    private List<Double> percentiles;
+
+    @Option(names = "--simulated-latency", required = false, defaultValue = "fixed:1",
+            description = "Time taken by every round trip of the simulated engine, connections included, in milliseconds: fixed:value, uniform:min:max, "
+                    + "exponential:mean or lognormal:median:sigma (default: ${DEFAULT-VALUE})")
+    private String simulatedLatency;
+
+    @Option(names = "--simulated-locks", required = false, defaultValue = "false",
+            description = "Make the updates of the simulated engine lock their row until commit, so that skewed key distributions contend")
+    private boolean simulatedLocks;
+
     @Option(names = "--help", usageHelp = true, description = "Print this help and exit")
     private boolean help;
 
     @Override
-    public Integer call() throws Exception {
+    public Integer call() {
+        return execute(BenchEngine::run);
+    }
+
+    // either a list, 1,2,4,8, or a range doubling at every step, 1..512
+    static List<Integer> parseSweep(String sweep) {
+        List<Integer> ret = new ArrayList<>();
+        if (sweep.contains("..")) {
+            String[] bounds = sweep.split("\\.\\.", 2);
+            int from = Integer.parseInt(bounds[0].trim());
+            int to = Integer.parseInt(bounds[1].trim());
+            // checked before expanding, a range starting at zero would never grow
+            if (from < 1 || from > to) {
+                throw new NumberFormatException("Concurrency range must start at 1 or more and not end before it starts");
+            }
+            for (long i = from; i <= to; i *= 2) {
+                ret.add((int) i);
+            }
+        } else {
+            for (String level : sweep.split(",")) {
+                ret.add(Integer.parseInt(level.trim()));
+            }
+        }
+        if (ret.isEmpty() || ret.stream().anyMatch(i -> i < 1)) {
+            throw new NumberFormatException("Concurrency levels must be positive");
+        }
+        return ret;
+    }
+
+    // file[@weight], the weight defaults to 1; scripts are reported by file name, by the path as given when two files
+    // share their name, and by their position too when the same file is given twice
+    private static WorkloadScript parseScript(String spec, int scale, Set<String> names) throws IOException {
+        int weight = 1;
+        String file = spec;
+        int at = spec.lastIndexOf('@');
+        if (at > 0) {
+            try {
+                weight = Integer.parseInt(spec.substring(at + 1).trim());
+                file = spec.substring(0, at);
+            } catch (NumberFormatException ex) {
+                // not a weight, part of the file name
+            }
+        }
+        if (weight < 1) {
+            throw new IllegalArgumentException("weight must be positive");
+        }
+        Path path = Path.of(file);
+        String name = path.getFileName().toString();
+        if (names.contains(name)) {
+            name = file;
+        }
+        if (names.contains(name)) {
+            name = file + " #" + (names.size() + 1);
+        }
+        names.add(name);
+        return ScriptParser.parse(path, name, weight, scale);
+    }
+
+    @Command(name = "init", description = "Create and populate tables, leaving them in place for later runs")
+    static class InitCommand implements Callable<Integer> {
+
+        @ParentCommand
+        private JSqlBenchCommand parent;
+
+        @Override
+        public Integer call() {
+            return parent.execute(BenchEngine::init);
+        }
+
+    }
+
+    @Command(name = "run", description = "Run the benchmark on tables created by a previous init with the same scale")
+    static class RunCommand implements Callable<Integer> {
+
+        @ParentCommand
+        private JSqlBenchCommand parent;
+
+        @Override
+        public Integer call() {
+            return parent.execute(BenchEngine::bench);
+        }
+
+    }
+
+    @Command(name = "cleanup", description = "Drop tables created by a previous init")
+    static class CleanupCommand implements Callable<Integer> {
+
+        @ParentCommand
+        private JSqlBenchCommand parent;
+
+        @Override
+        public Integer call() {
+            return parent.execute(BenchEngine::cleanup);
+        }
+
+    }
+
+    @Command(name = "agent", description = "Run clients for a coordinator started with --agents, taking the workload from it "
+            + "and database address and credentials from this command line")
+    static class AgentCommand implements Callable<Integer> {
+
+        @ParentCommand
+        private JSqlBenchCommand parent;
+
+        @Option(names = "--coordinator", required = true, description = "Coordinator to connect to, as host:port")
+        private String coordinator;
+
+        @Override
+        public Integer call() {
+            return parent.execute(eng -> eng.agent(coordinator));
+        }
+
+    }
+
+    private Integer execute(Consumer<BenchEngine> action) {
         BenchConf conf = new BenchConf();
         conf.setEngine(engine);
         conf.setHost(host);
@@ -78,6 +352,8 @@ public class JSqlBenchCommand implements Callable<Integer> {
                 conf.setPort(1521);
             } else if (engine == POSTGRES) {
                 conf.setPort(5432);
+            } else if (engine == NOOP || engine == SIMULATED) {
+                conf.setPort(0);
             } else {
                 throw new AssertionError("Unreachable code branch");
             }
@@ -89,13 +365,135 @@ public class JSqlBenchCommand implements Callable<Integer> {
         conf.setTablespace(tablespace);
         conf.setNologging(nologging);
         conf.setScale(scale);
+        conf.setLoadMethod(loadMethod);
+        conf.setLoaders(loaders);
+        conf.setBatchSize(batchSize);
+        conf.setCommitInterval(commitInterval);
+        conf.setParallelIndexes(parallelIndexes);
+        conf.setTruncateHistory(truncateHistory);
         conf.setConcurrency(concurrency);
+        conf.setConnections(connections);
+        conf.setAgents(agents);
+        conf.setAgentPort(agentPort);
+        conf.setSweepStopDrop(sweepStopDrop);
+        conf.setWarmup(warmup);
+        conf.setSteadyState(steadyState);
+        conf.setCooldown(cooldown);
+        conf.setThreadModel(threadModel);
         conf.setTime(time);
         conf.setReadOnly(readOnly);
+        conf.setQueryMode(queryMode);
+        conf.setProtocol(protocol);
+        conf.setReconnect(reconnect);
+        conf.setMaxTries(maxTries);
+        conf.setIsolation(isolation);
+        conf.setRate(rate);
+        conf.setLatencyLimit(latencyLimit);
+        conf.setProgress(progress);
+        conf.setReportPerCommand(reportPerCommand);
+        conf.setOutput(output);
+        conf.setOutputFile(outputFile != null ? outputFile : "jsqlbench-result." + output.toString().toLowerCase());
+        conf.setPercentiles(percentiles);
+        conf.setSimulatedLocks(simulatedLocks);
+
+        if ((engine == ORACLE || engine == POSTGRES) && (dbname == null || username == null)) {
+            log.error("Database name and username are required by {}", engine);
+            return 1;
+        }
+
+        if ((loadMethod == COPY && engine != POSTGRES) || (loadMethod == DIRECT && engine != ORACLE)) {
+            log.error("Load method {} is not supported by {}", loadMethod, engine);
+            return 1;
+        }
+        if (loaders < 1 || batchSize < 1 || commitInterval < 1) {
+            log.error("Loaders, batch size and commit interval must be positive");
+            return 1;
+        }
+        if (concurrencySweep != null) {
+            try {
+                conf.setConcurrencySweep(parseSweep(concurrencySweep));
+            } catch (NumberFormatException ex) {
+                log.error("Invalid concurrency sweep: {}", concurrencySweep);
+                return 1;
+            }
+        }
+        if (warmup < 0 || cooldown < 0 || sweepStopDrop < 0 || sweepStopDrop >= 100) {
+            log.error("Warm-up and cool-down cannot be negative, sweep stop drop must be a percentage");
+            return 1;
+        }
+        if (steadyState < 0 || (steadyState > 0 && warmup == 0)) {
+            log.error("Steady state threshold cannot be negative and requires a maximum warm-up time");
+            return 1;
+        }
+        try {
+            conf.setDistribution(KeyDistribution.parse(distribution));
+        } catch (IllegalArgumentException ex) {
+            log.error("Invalid distribution {}: {}", distribution, ex.getMessage());
+            return 1;
+        }
+        try {
+            conf.setSimulatedLatency(SimulatedLatency.parse(simulatedLatency));
+        } catch (IllegalArgumentException ex) {
+            log.error("Invalid simulated latency {}: {}", simulatedLatency, ex.getMessage());
+            return 1;
+        }
+        if (scripts != null) {
+            if (readOnly) {
+                log.error("Read only workload cannot be combined with custom scripts");
+                return 1;
+            }
+            List<WorkloadScript> parsed = new ArrayList<>(scripts.size());
+            Set<String> names = new HashSet<>();
+            for (String script : scripts) {
+                try {
+                    parsed.add(parseScript(script, scale, names));
+                } catch (IOException | IllegalArgumentException ex) {
+                    log.error("Invalid script {}: {}", script, ex.getMessage());
+                    return 1;
+                }
+            }
+            conf.setScripts(parsed);
+        }
+        if (protocol != STATEMENTS && (readOnly || scripts != null)) {
+            log.error("Protocol {} only applies to the built-in write transaction", protocol);
+            return 1;
+        }
+        if (agents < 0 || (agents > 0 && (steadyState > 0 || connections > 0))) {
+            log.error("Agents cannot be negative and cannot be combined with steady state detection or a connection pool");
+            return 1;
+        }
+        if (reconnect < 0) {
+            log.error("Reconnect interval cannot be negative");
+            return 1;
+        }
+        if (connections < 0 || (connections > 0 && reconnect > 0)) {
+            log.error("Connections cannot be negative and cannot be combined with reconnect");
+            return 1;
+        }
+        if (isolation == REPEATABLE_READ && engine == ORACLE) {
+            log.error("Isolation level {} is not supported by {}", isolation, engine);
+            return 1;
+        }
+        if (maxTries < 1) {
+            log.error("Max tries must be positive");
+            return 1;
+        }
+        if (rate < 0 || latencyLimit < 0) {
+            log.error("Rate and latency limit cannot be negative");
+            return 1;
+        }
+        if (progress < 0) {
+            log.error("Progress interval cannot be negative");
+            return 1;
+        }
+        if (percentiles.stream().anyMatch(p -> p <= 0d || p > 100d)) {
+            log.error("Percentiles must be greater than 0 and not greater than 100");
+            return 1;
+        }
 
         try {
             BenchEngine eng = new BenchEngine(conf);
-            eng.run();
+            action.accept(eng);
         } catch (Exception ex) {
             log.error(ex.getMessage());
             return 1;
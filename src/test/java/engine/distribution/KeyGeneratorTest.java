@@ -0,0 +1,76 @@
+package engine.distribution;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyGeneratorTest {
+
+    private static final List<String> DISTRIBUTIONS = List.of("uniform", "zipfian:0.5", "zipfian:0.99", "zipfian:1", "zipfian:1.5",
+            "gaussian:2", "gaussian:5", "exponential:0.1", "exponential:20", "hotspot:20:80", "hotspot:100:100", "hotspot:0.001:0", "hotspot:1:100");
+    // single key, small, negative and the accounts range of a large scale
+    private static final long[][] RANGES = {{1, 1}, {1, 10}, {-50, 50}, {1, 100_000L * 100_000L}};
+
+    @Test
+    void drawsStayWithinBounds() {
+        for (String spec : DISTRIBUTIONS) {
+            KeyDistribution distribution = KeyDistribution.parse(spec);
+            for (long[] range : RANGES) {
+                KeyGenerator generator = distribution.newGenerator(range[0], range[1]);
+                for (int i = 0; i < 100_000; i++) {
+                    long key = generator.next();
+                    assertTrue(key >= range[0] && key <= range[1], spec + " drew " + key + " out of " + range[0] + ".." + range[1]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void everyKeyOfSmallRangesIsDrawn() {
+        for (String spec : List.of("uniform", "zipfian:0.99", "gaussian:2.5", "exponential:1", "hotspot:20:80")) {
+            KeyGenerator generator = KeyDistribution.parse(spec).newGenerator(1, 10);
+            boolean[] seen = new boolean[10];
+            for (int i = 0; i < 100_000; i++) {
+                seen[(int) generator.next() - 1] = true;
+            }
+            for (int k = 0; k < seen.length; k++) {
+                assertTrue(seen[k], spec + " never drew " + (k + 1));
+            }
+        }
+    }
+
+    @Test
+    void skewedDistributionsFavourLowKeys() {
+        for (String spec : List.of("zipfian:0.99", "exponential:5", "hotspot:20:80")) {
+            KeyGenerator generator = KeyDistribution.parse(spec).newGenerator(1, 1000);
+            int low = 0;
+            for (int i = 0; i < 100_000; i++) {
+                if (generator.next() <= 200) {
+                    low++;
+                }
+            }
+            assertTrue(low > 60_000, spec + " drew " + low + " keys out of 100000 in the lowest fifth");
+        }
+    }
+
+    @Test
+    void parseAndFormat() {
+        assertEquals("uniform", KeyDistribution.parse("uniform").toString());
+        assertEquals("zipfian:0.99", KeyDistribution.parse("zipfian").toString());
+        assertEquals("hotspot:10:90", KeyDistribution.parse(" HOTSPOT:10:90 ").toString());
+        assertEquals("gaussian:3.5", KeyDistribution.parse("gaussian:3.5").toString());
+    }
+
+    @Test
+    void parseRejectsBadSpecs() {
+        for (String spec : List.of("poisson", "zipfian:0", "gaussian:1", "exponential:-1", "hotspot:20", "hotspot:0:50", "hotspot:20:101",
+                "uniform:1", "zipfian:x")) {
+            assertThrows(IllegalArgumentException.class, () -> KeyDistribution.parse(spec), spec);
+        }
+    }
+
+}
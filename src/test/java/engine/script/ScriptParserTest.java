@@ -0,0 +1,119 @@
+package engine.script;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScriptParserTest {
+
+    @TempDir
+    Path dir;
+
+    private WorkloadScript parse(String... lines) throws IOException {
+        Path file = Files.write(dir.resolve("test.sql"), List.of(lines));
+        return ScriptParser.parse(file, "test.sql", 1, 10);
+    }
+
+    private void assertInvalid(String message, String... lines) {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> parse(lines));
+        assertTrue(ex.getMessage().contains(message), ex.getMessage());
+    }
+
+    @Test
+    void variablesBecomePositionalParameters() throws IOException {
+        WorkloadScript script = parse(
+                "\\set aid random(1, 100000 * :scale)",
+                "\\set delta random(-5000, 5000)",
+                "UPDATE bench_accounts SET abalance = abalance + :delta WHERE aid = :aid;",
+                "SELECT abalance FROM bench_accounts WHERE aid = :aid;");
+        assertEquals(2, script.getStatements().size());
+        assertEquals("UPDATE bench_accounts SET abalance = abalance + ? WHERE aid = ?", script.getStatements().get(0).getSql());
+        // slot 0 is the predefined scale
+        assertArrayEquals(new int[]{2, 1}, script.getStatements().get(0).getParams());
+        assertArrayEquals(new int[]{1}, script.getStatements().get(1).getParams());
+        assertEquals(1, script.getVariables().get(1).getMin());
+        assertEquals(1_000_000, script.getVariables().get(1).getMax());
+    }
+
+    @Test
+    void multilineStatementsAndComments() throws IOException {
+        WorkloadScript script = parse(
+                "-- a comment",
+                "",
+                "SELECT *",
+                "  FROM bench_branches",
+                "  WHERE bid = 1;",
+                "SELECT 1");
+        assertEquals(2, script.getStatements().size());
+        assertEquals("SELECT *\nFROM bench_branches\nWHERE bid = 1", script.getStatements().get(0).getSql());
+        assertEquals("SELECT 1", script.getStatements().get(1).getSql());
+    }
+
+    @Test
+    void transactionControlIsSkipped() throws IOException {
+        WorkloadScript script = parse("BEGIN;", "SELECT 1;", "commit;");
+        assertEquals(1, script.getStatements().size());
+    }
+
+    @Test
+    void quotesAndCastsAreLeftAlone() throws IOException {
+        WorkloadScript script = parse("\\set id 5", "SELECT ':id', :id::text, \":id\" FROM t WHERE x = :id;");
+        assertEquals("SELECT ':id', ?::text, \":id\" FROM t WHERE x = ?", script.getStatements().get(0).getSql());
+        assertEquals(2, script.getStatements().get(0).getParams().length);
+    }
+
+    @Test
+    void constantExpressions() throws IOException {
+        WorkloadScript script = parse(
+                "\\set rows 100000 * :scale",
+                "\\set half (:rows - 2) / 2 + -1",
+                "\\set k random(:half, :rows)",
+                "SELECT :k;");
+        assertEquals(1_000_000, script.getVariables().get(1).getMin());
+        assertEquals(499_998, script.getVariables().get(2).getMin());
+        assertTrue(script.getVariables().get(2).isConstant());
+        assertEquals(499_998, script.getVariables().get(3).getMin());
+    }
+
+    @Test
+    void drawnValuesStayWithinBounds() throws IOException {
+        WorkloadScript script = parse(
+                "\\set a random(10, 20)",
+                "\\set b random_zipfian(1, 1000, 0.99)",
+                "\\set c random_hotspot(1, 1000, 20, 80)",
+                "SELECT :a, :b, :c;");
+        long[] values = new long[script.getVariables().size()];
+        for (int i = 0; i < 10_000; i++) {
+            script.generate(values);
+            assertEquals(10, values[0]);
+            assertTrue(values[1] >= 10 && values[1] <= 20);
+            assertTrue(values[2] >= 1 && values[2] <= 1000);
+            assertTrue(values[3] >= 1 && values[3] <= 1000);
+        }
+    }
+
+    @Test
+    void errorsNameTheLine() {
+        assertInvalid("test.sql:2: undefined variable :aid", "", "SELECT :aid;");
+        assertInvalid("test.sql:1: unsupported meta command", "\\sleep 10", "SELECT 1;");
+        assertInvalid("test.sql:2: variable x already defined", "\\set x 1", "\\set x 2", "SELECT 1;");
+        assertInvalid("test.sql:1: unknown function random_poisson", "\\set x random_poisson(1, 10, 2)", "SELECT 1;");
+        assertInvalid("lower bound greater than upper bound", "\\set x random(10, 1)", "SELECT 1;");
+        assertInvalid("requires its distribution parameters", "\\set x random_zipfian(1, 10)", "SELECT 1;");
+        assertInvalid("division by zero", "\\set x 1 / 0", "SELECT 1;");
+        assertInvalid("overflow", "\\set x 9223372036854775807 + 1", "SELECT 1;");
+        assertInvalid("constant variables", "\\set x random(1, 10)", "\\set y :x + 1", "SELECT 1;");
+        assertInvalid("meta command inside an unterminated SQL statement", "SELECT 1", "\\set x 1");
+        assertInvalid("no SQL statement found", "-- nothing", "BEGIN;", "END;");
+    }
+
+}
@@ -0,0 +1,165 @@
+package engine.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    private static final double[] PERCENTILES = {0, 1, 10, 50, 90, 99, 99.9, 99.99, 100};
+
+    // lognormal latencies around one millisecond, as a real run records
+    private static long[] samples(int size) {
+        Random rnd = new Random(42);
+        long[] ret = new long[size];
+        for (int i = 0; i < size; i++) {
+            ret[i] = (long) (1_000_000d * Math.exp(rnd.nextGaussian()));
+        }
+        return ret;
+    }
+
+    // nearest rank on the sorted samples, the definition the histogram approximates
+    private static long exactPercentile(long[] sorted, double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100d * sorted.length));
+        return sorted[(int) rank - 1];
+    }
+
+    @Test
+    void emptyHistogram() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMin());
+        assertEquals(0, h.getMax());
+        assertEquals(0, h.getValueAtPercentile(50));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 100; v++) {
+            h.record(v);
+        }
+        assertEquals(1, h.getValueAtPercentile(0));
+        assertEquals(50, h.getValueAtPercentile(50));
+        assertEquals(90, h.getValueAtPercentile(90));
+        assertEquals(99, h.getValueAtPercentile(99));
+        assertEquals(100, h.getValueAtPercentile(100));
+        assertEquals(5050, h.getSum());
+    }
+
+    @Test
+    void percentilesWithinRelativeError() {
+        long[] values = samples(1_000_000);
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v : values) {
+            h.record(v);
+        }
+        Arrays.sort(values);
+        assertEquals(values[0], h.getMin());
+        assertEquals(values[values.length - 1], h.getMax());
+        assertEquals(values[values.length - 1], h.getValueAtPercentile(100));
+        for (double p : PERCENTILES) {
+            long exact = exactPercentile(values, p);
+            long approx = h.getValueAtPercentile(p);
+            // the highest value of the bucket holding the exact one, never below it
+            assertTrue(approx >= exact, p + ": " + approx + " below " + exact);
+            assertTrue(approx - exact <= exact / 64, p + ": " + approx + " too far from " + exact);
+        }
+    }
+
+    @Test
+    void percentilesAreMonotonic() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v : samples(100_000)) {
+            h.record(v);
+        }
+        long previous = 0;
+        for (double p = 0; p <= 100; p += 0.5) {
+            long value = h.getValueAtPercentile(p);
+            assertTrue(value >= previous, p + ": " + value + " below " + previous);
+            previous = value;
+        }
+    }
+
+    @Test
+    void bucketsCoverEveryValue() {
+        for (long v = 0; v < 1L << 42; v = v < 1024 ? v + 1 : v + v / 7 + 1) {
+            int idx = LatencyHistogram.bucketIndex(v);
+            assertTrue(LatencyHistogram.bucketLowestValue(idx) <= v && v <= LatencyHistogram.bucketHighestValue(idx), "value " + v);
+            assertEquals(LatencyHistogram.bucketHighestValue(idx) + 1, LatencyHistogram.bucketLowestValue(idx + 1), "value " + v);
+        }
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        h.record(Long.MAX_VALUE / 2);
+        assertEquals(0, h.getMin());
+        assertEquals(Long.MAX_VALUE / 2, h.getMax());
+        assertEquals(0, h.getValueAtPercentile(50));
+        assertTrue(h.getValueAtPercentile(100) >= 1L << 41);
+    }
+
+    @Test
+    void mergeEqualsSingleHistogram() {
+        long[] values = samples(10_000);
+        LatencyHistogram all = new LatencyHistogram();
+        LatencyHistogram odd = new LatencyHistogram();
+        LatencyHistogram even = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            all.record(values[i]);
+            (i % 2 == 0 ? even : odd).record(values[i]);
+        }
+        even.add(odd);
+        assertSameCounts(all, even);
+    }
+
+    @Test
+    void wireRoundTrip() throws IOException {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v : samples(10_000)) {
+            h.record(v);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        h.write(new DataOutputStream(bytes));
+        LatencyHistogram read = new LatencyHistogram();
+        read.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertSameCounts(h, read);
+    }
+
+    @Test
+    void adjacentRangesNeverOverlap() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v : samples(10_000)) {
+            h.record(v);
+        }
+        long[] bounds = {0, 100_000, 200_000, 500_000, 1_000_000, 2_000_000, 5_000_000, 10_000_000, 1L << 42};
+        long total = 0;
+        for (int i = 0; i < bounds.length - 1; i++) {
+            total += h.getCountBetween(bounds[i], bounds[i + 1]);
+        }
+        assertEquals(h.getCount(), total);
+    }
+
+    private static void assertSameCounts(LatencyHistogram expected, LatencyHistogram actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getSum(), actual.getSum());
+        assertEquals(expected.getMin(), actual.getMin());
+        assertEquals(expected.getMax(), actual.getMax());
+        assertEquals(expected.getSumOfSquares(), actual.getSumOfSquares(), expected.getSumOfSquares() * 1e-12);
+        for (double p : PERCENTILES) {
+            assertEquals(expected.getValueAtPercentile(p), actual.getValueAtPercentile(p));
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package main;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JSqlBenchCommandTest {
+
+    @Test
+    void sweepList() {
+        assertEquals(List.of(1, 2, 4, 8), JSqlBenchCommand.parseSweep("1,2,4,8"));
+        assertEquals(List.of(3, 5), JSqlBenchCommand.parseSweep(" 3 , 5 "));
+    }
+
+    @Test
+    void sweepRangeDoubles() {
+        assertEquals(List.of(1, 2, 4, 8, 16), JSqlBenchCommand.parseSweep("1..16"));
+        assertEquals(List.of(3, 6, 12), JSqlBenchCommand.parseSweep("3..20"));
+        assertEquals(List.of(5), JSqlBenchCommand.parseSweep("5..5"));
+    }
+
+    @Test
+    void sweepRangeNearIntegerLimit() {
+        assertEquals(List.of(1 << 30), JSqlBenchCommand.parseSweep((1 << 30) + ".." + Integer.MAX_VALUE));
+    }
+
+    @Test
+    void sweepRejectsBadValues() {
+        assertThrows(NumberFormatException.class, () -> JSqlBenchCommand.parseSweep("0..8"));
+        assertThrows(NumberFormatException.class, () -> JSqlBenchCommand.parseSweep("-2..8"));
+        assertThrows(NumberFormatException.class, () -> JSqlBenchCommand.parseSweep("8..2"));
+        assertThrows(NumberFormatException.class, () -> JSqlBenchCommand.parseSweep("1,0,4"));
+        assertThrows(NumberFormatException.class, () -> JSqlBenchCommand.parseSweep("1,x"));
+        assertThrows(NumberFormatException.class, () -> JSqlBenchCommand.parseSweep(""));
+    }
+
+}